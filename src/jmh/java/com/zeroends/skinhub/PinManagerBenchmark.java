@@ -0,0 +1,121 @@
+package com.zeroends.skinhub;
+
+import com.google.gson.Gson;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * PIN dan sesi web dengan banyak thread sekaligus (thread Jetty / virtual thread web + main thread).
+ * Benchmark group "mixed" meniru beban dashboard: banyak validasi sesi, sedikit login.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PinManagerBenchmark {
+
+    private static final int PLAYERS = 2048;
+
+    @Param({"memory", "signed"})
+    public String sessionMode;
+
+    private Path dataFolder;
+    private PinManager pinManager;
+    private UUID[] players;
+    private String[] pins;
+    private String[] sessions;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        dataFolder = BenchSupport.tempDir();
+        SkinHub plugin = BenchSupport.plugin(dataFolder, Map.of("web.session-mode", sessionMode));
+        pinManager = new PinManager(plugin, new FileStorage(plugin, new Gson()));
+
+        SplittableRandom random = new SplittableRandom(3);
+        players = new UUID[PLAYERS];
+        pins = new String[PLAYERS];
+        sessions = new String[PLAYERS];
+        for (int i = 0; i < PLAYERS; i++) {
+            players[i] = BenchSupport.uuid(random);
+            pins[i] = pinManager.getOrCreatePin(players[i]);
+            sessions[i] = pinManager.createSession(players[i], "Player" + i);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        pinManager.shutdown();
+        BenchSupport.delete(dataFolder);
+    }
+
+    private static int pick() {
+        return ThreadLocalRandom.current().nextInt(PLAYERS);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public PinManager.UserInfo validateSession() {
+        return pinManager.validateSession(sessions[pick()]);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public boolean validatePin() {
+        int i = pick();
+        return pinManager.validatePin(players[i], pins[i]);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public String getOrCreatePin() {
+        return pinManager.getOrCreatePin(players[pick()]);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public String createSession() {
+        int i = pick();
+        return pinManager.createSession(players[i], "Player" + i);
+    }
+
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(6)
+    public PinManager.UserInfo mixedValidateSession() {
+        return pinManager.validateSession(sessions[pick()]);
+    }
+
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(2)
+    public String mixedLogin() {
+        int i = pick();
+        if (!pinManager.validatePin(players[i], pins[i])) {
+            return null;
+        }
+        return pinManager.createSession(players[i], "Player" + i);
+    }
+}
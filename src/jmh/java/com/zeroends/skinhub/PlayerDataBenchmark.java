@@ -0,0 +1,68 @@
+package com.zeroends.skinhub;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/** Operasi koleksi skin per pemain: tambah, cari, hapus. */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PlayerDataBenchmark {
+
+    /** Jumlah skin yang sudah ada di koleksi (default max-skins = 5). */
+    @Param({"1", "5"})
+    public int slots;
+
+    private PlayerData data;
+    private PlayerData.SkinInfo[] existing;
+    private PlayerData.SkinInfo extra;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        SplittableRandom random = new SplittableRandom(7);
+        data = new PlayerData();
+        existing = new PlayerData.SkinInfo[slots];
+        for (int i = 0; i < slots; i++) {
+            existing[i] = BenchSupport.skin(i, random);
+            data = data.withSkin(existing[i], slots + 1);
+        }
+        extra = BenchSupport.skin(slots, random);
+    }
+
+    /** Tambah lalu hapus lagi; snapshot awal tidak berubah, jadi setiap invocation mulai dari keadaan yang sama. */
+    @Benchmark
+    public PlayerData addThenRemoveSkin() {
+        return data.withSkin(extra, slots + 1).withoutSkin(extra.id());
+    }
+
+    @Benchmark
+    public PlayerData addDuplicateSkin() {
+        return data.withSkin(existing[slots - 1], slots + 1);
+    }
+
+    @Benchmark
+    public PlayerData.SkinInfo getSkinById() {
+        return data.getSkinById(existing[slots - 1].id());
+    }
+
+    @Benchmark
+    public boolean hasTexture() {
+        return data.hasTexture(extra.texture());
+    }
+}
@@ -0,0 +1,130 @@
+package com.zeroends.skinhub;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.BenchmarkParams;
+
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Storage.saveData / loadData pada layout single.
+ * journal=false menulis ulang seluruh snapshot; journal=true hanya menulis {@link #DIRTY_PER_SAVE} pemain per save.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgs = {"-Xms4g", "-Xmx4g"})
+public class StorageBenchmark {
+
+    private static final int DIRTY_PER_SAVE = 100;
+
+    @Param({"1000", "100000", "1000000"})
+    public int players;
+
+    @Param({"json", "binary"})
+    public String format;
+
+    @Param({"false", "true"})
+    public boolean journal;
+
+    private final Gson gson = new GsonBuilder().create();
+    private Path dataFolder;
+    private SkinHub plugin;
+    private Storage storage;
+    private UUID[] uuids;
+    private int nextDirty;
+
+    @Setup(Level.Trial)
+    public void setUp(BenchmarkParams params) {
+        dataFolder = BenchSupport.tempDir();
+        plugin = BenchSupport.plugin(dataFolder, Map.of(
+                "storage.format", format,
+                "storage.layout", "single",
+                "storage.journal.enabled", journal));
+        storage = new FileStorage(plugin, gson);
+        if (!storage.loadData()) {
+            throw new IllegalStateException("Could not initialise storage");
+        }
+
+        SplittableRandom random = new SplittableRandom(42);
+        uuids = new UUID[players];
+        for (int i = 0; i < players; i++) {
+            uuids[i] = BenchSupport.uuid(random);
+            // 1-3 skin per pemain, rata-rata mendekati server sungguhan
+            int skins = 1 + random.nextInt(3);
+            for (int s = 0; s < skins; s++) {
+                PlayerData.SkinInfo skin = BenchSupport.skin(i * 8L + s, random);
+                storage.update(uuids[i], data -> data.withSkin(skin, 5));
+            }
+            storage.update(uuids[i], data -> data.withActiveSkinId(data.getSkinSlots().get(0).id()));
+        }
+        // Snapshot awal untuk loadData (dan agar journal mulai kosong)
+        if (!storage.compact()) {
+            throw new IllegalStateException("Could not write initial snapshot");
+        }
+        if (params.getBenchmark().endsWith(".loadData")) {
+            // loadData hanya membaca snapshot di disk; data setup dilepas agar heap cukup untuk salinan hasil load
+            storage.close();
+            storage = null;
+        }
+    }
+
+    @TearDown(Level.Iteration)
+    public void compactJournal() {
+        // Cegah journal tumbuh tanpa batas antar iterasi
+        if (journal && storage != null) {
+            storage.compact();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        if (storage != null) {
+            storage.close();
+        }
+        BenchSupport.delete(dataFolder);
+    }
+
+    @Benchmark
+    public boolean saveData() {
+        if (journal) {
+            for (int i = 0; i < DIRTY_PER_SAVE; i++) {
+                storage.markDirty(uuids[nextDirty]);
+                nextDirty = (nextDirty + 1) % uuids.length;
+            }
+        }
+        return storage.saveData();
+    }
+
+    @Benchmark
+    public int loadData() {
+        Storage fresh = new FileStorage(plugin, gson);
+        try {
+            if (!fresh.loadData()) {
+                throw new IllegalStateException("loadData failed");
+            }
+            return fresh.findPlayerData(uuids[0]).getSkinSlots().size();
+        } finally {
+            fresh.close();
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package com.zeroends.skinhub;
+
+import com.google.gson.Gson;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.net.http.HttpRequest;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+/**
+ * Jalur upload sebelum MineSkin: validasi PNG (header saja dan decode penuh + hash piksel)
+ * serta pembuatan request multipart. SkinsRestorer tidak dipakai di jalur ini, jadi diisi null.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UploadBenchmark {
+
+    private Path dataFolder;
+    private SkinManager skinManager;
+    private byte[] png;
+    private byte[] wrongSize;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        dataFolder = BenchSupport.tempDir();
+        SkinHub plugin = BenchSupport.plugin(dataFolder, Map.of());
+        Gson gson = new Gson();
+        skinManager = new SkinManager(plugin, new FileStorage(plugin, gson), null, null, new MineSkinCache(plugin, gson));
+        SplittableRandom random = new SplittableRandom(11);
+        png = BenchSupport.skinPng(random);
+        // IHDR valid (CRC dihitung ulang) tapi lebar 128: harus ditolak tanpa decode
+        wrongSize = png.clone();
+        wrongSize[19] = (byte) 128;
+        CRC32 crc = new CRC32();
+        crc.update(wrongSize, 12, 17);
+        ByteBuffer.wrap(wrongSize, 29, 4).putInt((int) crc.getValue());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        skinManager.shutdown();
+        BenchSupport.delete(dataFolder);
+    }
+
+    @Benchmark
+    public PngHeader parseHeader() {
+        return PngHeader.parse(png);
+    }
+
+    @Benchmark
+    public String validatePng() throws IOException {
+        return skinManager.validatePng(png);
+    }
+
+    @Benchmark
+    public String rejectWrongSize() throws IOException {
+        return skinManager.validatePng(wrongSize);
+    }
+
+    @Benchmark
+    public HttpRequest buildMultipartRequest() {
+        return skinManager.buildMultipartRequest(png, "my-skin.png", "---MineskinBoundary1700000000000");
+    }
+}
@@ -0,0 +1,144 @@
+package com.zeroends.skinhub;
+
+import net.skinsrestorer.api.SkinsRestorer;
+import org.bukkit.Bukkit;
+import org.bukkit.OfflinePlayer;
+import org.bukkit.Server;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Logger;
+
+/**
+ * Bukkit Server dan SkinsRestorer palsu (in-memory) untuk load test tanpa server Paper.
+ * Semua pemain dianggap offline; SkinsRestorer hanya menyimpan skin terakhir per pemain
+ * dan menghitung panggilan, dengan latensi tulis opsional untuk meniru database SkinsRestorer.
+ */
+final class FakeServer {
+
+    private final Logger logger;
+    private final long skinsRestorerLatencyMillis;
+    private final Map<String, LongAdder> skinsRestorerCalls = new ConcurrentHashMap<>();
+    private final Map<UUID, Object> skinData = new ConcurrentHashMap<>();
+    private final Map<Class<?>, Object> subApis = new ConcurrentHashMap<>();
+
+    FakeServer(Logger logger, long skinsRestorerLatencyMillis) {
+        this.logger = logger;
+        this.skinsRestorerLatencyMillis = skinsRestorerLatencyMillis;
+    }
+
+    /** Memasang Server palsu sebagai singleton Bukkit (lewat field, karena setServer butuh info build Paper). */
+    void install() throws ReflectiveOperationException {
+        Server server = proxy(Server.class, this::handleServer);
+        Field field = Bukkit.class.getDeclaredField("server");
+        field.setAccessible(true);
+        field.set(null, server);
+    }
+
+    SkinsRestorer skinsRestorer() {
+        return proxy(SkinsRestorer.class, this::handleSkinsRestorer);
+    }
+
+    /** Jumlah panggilan per method SkinsRestorer, diurutkan per nama. */
+    Map<String, Long> skinsRestorerCalls() {
+        Map<String, Long> result = new TreeMap<>();
+        skinsRestorerCalls.forEach((name, count) -> result.put(name, count.sum()));
+        return result;
+    }
+
+    int storedSkins() {
+        return skinData.size();
+    }
+
+    private Object handleServer(Object proxy, Method method, Object[] args) {
+        return switch (method.getName()) {
+            case "getPlayer", "getPlayerExact" -> null;
+            case "getOfflinePlayer" -> args[0] instanceof UUID uuid
+                    ? offlinePlayer(uuid, "Player-" + uuid.toString().substring(0, 8))
+                    : offlinePlayer(UUID.nameUUIDFromBytes(("OfflinePlayer:" + args[0]).getBytes(StandardCharsets.UTF_8)), (String) args[0]);
+            case "getOnlinePlayers" -> List.of();
+            case "getLogger" -> logger;
+            case "getName", "getVersion", "getBukkitVersion" -> "SkinHub-LoadTest";
+            default -> defaultValue(proxy, method, args);
+        };
+    }
+
+    private OfflinePlayer offlinePlayer(UUID uuid, String name) {
+        return proxy(OfflinePlayer.class, (proxy, method, args) -> switch (method.getName()) {
+            case "getUniqueId" -> uuid;
+            case "getName" -> name;
+            case "hasPlayedBefore" -> true;
+            case "isOnline" -> false;
+            case "getPlayer" -> null;
+            default -> defaultValue(proxy, method, args);
+        });
+    }
+
+    private Object handleSkinsRestorer(Object proxy, Method method, Object[] args) throws InterruptedException {
+        if (method.getDeclaringClass() == Object.class) {
+            return defaultValue(proxy, method, args);
+        }
+        skinsRestorerCalls.computeIfAbsent(method.getName(), k -> new LongAdder()).increment();
+        Class<?> type = method.getReturnType();
+        // getSkinStorage(), getPlayerStorage(), getSkinApplier(...): sub-API palsu dengan handler yang sama
+        if (type.isInterface() && type.getName().startsWith("net.skinsrestorer.api")) {
+            return subApis.computeIfAbsent(type, t -> proxy(t, this::handleSkinsRestorer));
+        }
+        switch (method.getName()) {
+            case "setPlayerSkinData" -> {
+                pause();
+                skinData.put((UUID) args[0], args[2]);
+            }
+            case "removeSkinIdOfPlayer", "setSkinIdOfPlayer" -> pause();
+            default -> { }
+        }
+        return defaultValue(proxy, method, args);
+    }
+
+    private void pause() throws InterruptedException {
+        if (skinsRestorerLatencyMillis > 0) {
+            Thread.sleep(skinsRestorerLatencyMillis);
+        }
+    }
+
+    private static Object defaultValue(Object proxy, Method method, Object[] args) {
+        switch (method.getName()) {
+            case "equals" -> {
+                return proxy == args[0];
+            }
+            case "hashCode" -> {
+                return System.identityHashCode(proxy);
+            }
+            case "toString" -> {
+                return "Fake" + proxy.getClass().getInterfaces()[0].getSimpleName();
+            }
+            default -> { }
+        }
+        Class<?> type = method.getReturnType();
+        if (type == boolean.class) return false;
+        if (type == int.class) return 0;
+        if (type == long.class) return 0L;
+        if (type == double.class) return 0.0;
+        if (type == float.class) return 0.0f;
+        if (type == short.class) return (short) 0;
+        if (type == byte.class) return (byte) 0;
+        if (type == char.class) return '\0';
+        if (type == Optional.class) return Optional.empty();
+        return null;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T proxy(Class<T> type, InvocationHandler handler) {
+        return (T) Proxy.newProxyInstance(FakeServer.class.getClassLoader(), new Class<?>[]{type}, handler);
+    }
+}
@@ -0,0 +1,420 @@
+package com.zeroends.skinhub;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.CookieManager;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Load test end-to-end: menjalankan WebServer asli dengan stub MineSkin lokal dan SkinsRestorer palsu,
+ * lalu banyak pemain virtual menjalankan login, dashboard, upload (sampai job selesai), apply dan delete.
+ * Tidak butuh server Paper maupun jaringan. Jalankan lewat: mvn -P loadtest verify -Dloadtest.args="--users=100"
+ *
+ * <pre>
+ * --users=50                  pemain virtual bersamaan
+ * --duration=60               lama pengujian (detik)
+ * --think-ms=0                jeda antar aksi per pemain
+ * --relogin-every=10          login ulang setiap N putaran
+ * --mineskin-latency-ms=300   latensi dasar stub MineSkin
+ * --mineskin-jitter-ms=200    tambahan latensi acak 0..N
+ * --mineskin-failure-rate=0.02  peluang HTTP 500
+ * --mineskin-429-every=50     setiap N request memulai burst 429 (0 = mati)
+ * --mineskin-429-burst=5      panjang burst 429
+ * --mineskin-retry-after=1    nilai Retry-After (detik)
+ * --mineskin-in-flight=4      mineskin.queue.max-in-flight
+ * --sr-latency-ms=0           latensi tulis SkinsRestorer palsu
+ * --max-error-rate=0.01       batas error per operasi sebelum exit code 1
+ * --metrics=false             cetak /metrics plugin di akhir
+ * </pre>
+ */
+public final class LoadTest {
+
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(30);
+    private static final long UPLOAD_POLL_MILLIS = 250;
+    private static final long UPLOAD_TIMEOUT_MILLIS = 120_000;
+
+    private final Map<String, String> options;
+    private final Recorder recorder = new Recorder();
+    private String baseUrl;
+    private PinManager pinManager;
+    private int maxSkins;
+
+    private LoadTest(Map<String, String> options) {
+        this.options = options;
+    }
+
+    public static void main(String[] args) throws Exception {
+        // Log Javalin/Jetty cukup warning saja agar laporan tetap terbaca
+        System.setProperty("org.slf4j.simpleLogger.defaultLogLevel", "warn");
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                System.err.println("Unknown argument: " + arg + " (expected --name=value)");
+                System.exit(2);
+            }
+            int eq = arg.indexOf('=');
+            options.put(arg.substring(2, eq), arg.substring(eq + 1));
+        }
+        System.exit(new LoadTest(options).run() ? 0 : 1);
+    }
+
+    private boolean run() throws Exception {
+        int users = intOption("users", 50);
+        long durationMillis = intOption("duration", 60) * 1000L;
+
+        MineSkinStub mineSkin = new MineSkinStub(
+                intOption("mineskin-latency-ms", 300), intOption("mineskin-jitter-ms", 200),
+                Double.parseDouble(options.getOrDefault("mineskin-failure-rate", "0.02")),
+                intOption("mineskin-429-every", 50), intOption("mineskin-429-burst", 5),
+                intOption("mineskin-retry-after", 1));
+        String mineSkinUrl = mineSkin.start();
+
+        Path dataFolder = BenchSupport.tempDir();
+        Map<String, Object> config = new HashMap<>();
+        config.put("web.port", 0);
+        config.put("mineskin.api-url", mineSkinUrl);
+        config.put("mineskin.api-key", "loadtest");
+        config.put("mineskin.queue.max-in-flight", intOption("mineskin-in-flight", 4));
+        config.put("mineskin.queue.max-pending", Math.max(200, users * 2));
+        config.put("mineskin.queue.base-backoff-ms", 200);
+        config.put("skin-management.upload-cooldown-seconds", 0);
+        SkinHub plugin = BenchSupport.plugin(dataFolder, config);
+        this.maxSkins = plugin.getConfig().getInt("skin-management.max-skins", 5);
+
+        FakeServer fakeServer = new FakeServer(plugin.getLogger(), intOption("sr-latency-ms", 0));
+        fakeServer.install();
+
+        // Urutan sama dengan SkinHub.onEnable
+        Gson gson = new GsonBuilder().create();
+        Storage storage = Storage.create(plugin, gson);
+        if (!storage.loadData()) {
+            throw new IllegalStateException("Could not initialise storage in " + dataFolder);
+        }
+        plugin.completeDataLoad(true);
+        SaveScheduler saveScheduler = new SaveScheduler(plugin, storage);
+        MineSkinCache mineSkinCache = new MineSkinCache(plugin, gson);
+        mineSkinCache.load();
+        pinManager = new PinManager(plugin, storage);
+        SkinManager skinManager = new SkinManager(plugin, storage, saveScheduler, fakeServer.skinsRestorer(), mineSkinCache);
+        skinManager.start();
+        WebServer webServer = new WebServer(plugin, pinManager, skinManager);
+        webServer.start();
+        baseUrl = "http://127.0.0.1:" + webServer.getPort();
+
+        System.out.printf("SkinHub load test: %d users, %d s, web %s, MineSkin stub %s%n",
+                users, durationMillis / 1000, baseUrl, mineSkinUrl);
+
+        long started = System.nanoTime();
+        long deadline = System.currentTimeMillis() + durationMillis;
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < users; i++) {
+                int index = i;
+                executor.execute(() -> runUser(index, deadline));
+            }
+        }
+        double elapsedSeconds = (System.nanoTime() - started) / 1e9;
+
+        webServer.stop();
+        skinManager.shutdown();
+        saveScheduler.shutdown();
+        storage.close();
+        pinManager.shutdown();
+        mineSkin.stop();
+
+        boolean passed = recorder.report(elapsedSeconds, Double.parseDouble(options.getOrDefault("max-error-rate", "0.01")));
+        System.out.printf("%nMineSkin stub: %d ok, %d rate limited (429), %d failed (500)%n",
+                mineSkin.okCount(), mineSkin.rateLimitedCount(), mineSkin.failedCount());
+        System.out.printf("SkinsRestorer fake: %d player skin(s) stored, calls %s%n",
+                fakeServer.storedSkins(), fakeServer.skinsRestorerCalls());
+        System.out.printf("Saves: %d requested, %d written%n", saveScheduler.getSaveRequests(), saveScheduler.getSavesWritten());
+        if (Boolean.parseBoolean(options.getOrDefault("metrics", "false"))) {
+            System.out.println();
+            System.out.print(plugin.getMetrics().scrape());
+        }
+        BenchSupport.delete(dataFolder);
+        return passed;
+    }
+
+    // ======== Pemain virtual ========
+
+    private void runUser(int index, long deadline) {
+        SplittableRandom random = new SplittableRandom(index);
+        UUID uuid = BenchSupport.uuid(random);
+        HttpClient client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .cookieHandler(new CookieManager())
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+        int reloginEvery = Math.max(1, intOption("relogin-every", 10));
+        long thinkMillis = intOption("think-ms", 0);
+
+        boolean loggedIn = false;
+        for (int round = 0; System.currentTimeMillis() < deadline; round++) {
+            try {
+                if (!loggedIn || round % reloginEvery == 0) {
+                    loggedIn = login(client, uuid);
+                    if (!loggedIn) {
+                        continue;
+                    }
+                }
+                Response data = send("dashboard", client, get("/api/dashboard/data"), 200);
+                if (data.status() == 401) {
+                    loggedIn = false;
+                    continue;
+                }
+                JsonArray skins = data.body() != null ? data.body().getAsJsonArray("skins") : null;
+                if (skins == null) {
+                    continue;
+                }
+                if (skins.size() >= maxSkins) {
+                    // Koleksi penuh (misalnya setelah error di putaran sebelumnya): kosongkan satu slot
+                    delete(client, skins.get(0).getAsJsonObject().get("id").getAsLong());
+                    continue;
+                }
+                think(thinkMillis);
+
+                Long skinId = upload(client, random, deadline);
+                if (skinId == null) {
+                    continue;
+                }
+                think(thinkMillis);
+                send("apply", client, postJson("/api/dashboard/apply", "{\"skinId\":" + skinId + "}"), 200);
+                send("dashboard", client, get("/api/dashboard/data"), 200);
+                think(thinkMillis);
+                delete(client, skinId);
+            } catch (IOException e) {
+                recorder.error("transport");
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private boolean login(HttpClient client, UUID uuid) throws IOException, InterruptedException {
+        // Setara dengan pemain menjalankan /skinhub di dalam game
+        String pin = pinManager.getOrCreatePin(uuid);
+        String form = "username=" + URLEncoder.encode(uuid.toString(), StandardCharsets.UTF_8) + "&pin=" + pin;
+        HttpRequest request = request("/api/login")
+                .header("Content-Type", "application/x-www-form-urlencoded")
+                .POST(HttpRequest.BodyPublishers.ofString(form))
+                .build();
+        return send("login", client, request, 200).status() == 200;
+    }
+
+    /** @return id skin baru setelah job MineSkin selesai, atau null jika upload ditolak/gagal. */
+    private Long upload(HttpClient client, SplittableRandom random, long deadline) throws IOException, InterruptedException {
+        String boundary = "----SkinHubLoadTest" + Long.toHexString(random.nextLong());
+        ByteArrayOutputStream body = new ByteArrayOutputStream(20_000);
+        body.writeBytes(("--" + boundary + "\r\n"
+                + "Content-Disposition: form-data; name=\"skinFile\"; filename=\"loadtest.png\"\r\n"
+                + "Content-Type: image/png\r\n\r\n").getBytes(StandardCharsets.UTF_8));
+        body.writeBytes(BenchSupport.skinPng(random));
+        body.writeBytes(("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.UTF_8));
+        HttpRequest request = request("/api/dashboard/upload")
+                .header("Content-Type", "multipart/form-data; boundary=" + boundary)
+                .POST(HttpRequest.BodyPublishers.ofByteArray(body.toByteArray()))
+                .build();
+
+        long started = System.nanoTime();
+        // 429 = antrian penuh; bukan error server, dicatat terpisah
+        Response accepted = send("upload", client, request, 200, 202, 429);
+        if (accepted.status() == 200) {
+            recorder.record("upload_complete", started, true);
+            return skinIdOf(accepted.body());
+        }
+        if (accepted.status() != 202 || accepted.body() == null) {
+            if (accepted.status() == 429) {
+                recorder.count("upload_rejected");
+            }
+            return null;
+        }
+
+        String jobId = accepted.body().get("jobId").getAsString();
+        long giveUp = Math.min(deadline + UPLOAD_TIMEOUT_MILLIS, System.currentTimeMillis() + UPLOAD_TIMEOUT_MILLIS);
+        while (System.currentTimeMillis() < giveUp) {
+            Thread.sleep(UPLOAD_POLL_MILLIS);
+            Response status = send("upload_status", client, get("/api/dashboard/upload/" + jobId), 200);
+            String state = status.body() != null && status.body().has("status") ? status.body().get("status").getAsString() : "";
+            if ("DONE".equals(state)) {
+                Long skinId = skinIdOf(status.body());
+                recorder.record("upload_complete", started, skinId != null);
+                return skinId;
+            }
+            if ("FAILED".equals(state)) {
+                recorder.record("upload_complete", started, false);
+                return null;
+            }
+        }
+        recorder.record("upload_complete", started, false);
+        return null;
+    }
+
+    private void delete(HttpClient client, long skinId) throws IOException, InterruptedException {
+        send("delete", client, postJson("/api/dashboard/delete", "{\"skinId\":" + skinId + "}"), 200);
+    }
+
+    private static Long skinIdOf(JsonObject body) {
+        if (body == null || !body.has("newSkin") || !body.get("newSkin").isJsonObject()) {
+            return null;
+        }
+        JsonElement id = body.getAsJsonObject("newSkin").get("id");
+        return id != null ? id.getAsLong() : null;
+    }
+
+    private static void think(long millis) throws InterruptedException {
+        if (millis > 0) {
+            Thread.sleep(millis);
+        }
+    }
+
+    // ======== HTTP ========
+
+    private HttpRequest.Builder request(String path) {
+        return HttpRequest.newBuilder(URI.create(baseUrl + path)).timeout(REQUEST_TIMEOUT);
+    }
+
+    private HttpRequest get(String path) {
+        return request(path).GET().build();
+    }
+
+    private HttpRequest postJson(String path, String json) {
+        return request(path)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(json))
+                .build();
+    }
+
+    private Response send(String operation, HttpClient client, HttpRequest request, int... expected)
+            throws IOException, InterruptedException {
+        long started = System.nanoTime();
+        HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+        boolean ok = Arrays.stream(expected).anyMatch(code -> code == response.statusCode());
+        recorder.record(operation, started, ok);
+        JsonObject body = null;
+        try {
+            JsonElement parsed = JsonParser.parseString(response.body());
+            body = parsed.isJsonObject() ? parsed.getAsJsonObject() : null;
+        } catch (JsonParseException ignored) {
+            // Bukan JSON (misalnya 304 tanpa body)
+        }
+        return new Response(response.statusCode(), body);
+    }
+
+    private int intOption(String name, int defaultValue) {
+        String value = options.get(name);
+        return value != null ? Integer.parseInt(value) : defaultValue;
+    }
+
+    private record Response(int status, JsonObject body) {}
+
+    // ======== Statistik ========
+
+    /** Latensi per operasi (semua sampel disimpan; cukup untuk beberapa juta request). */
+    private static final class Recorder {
+        private final Map<String, Operation> operations = new ConcurrentHashMap<>();
+
+        void record(String name, long startNanos, boolean ok) {
+            Operation op = operations.computeIfAbsent(name, k -> new Operation());
+            op.add(System.nanoTime() - startNanos);
+            if (!ok) {
+                op.errors.increment();
+            }
+        }
+
+        void count(String name) {
+            operations.computeIfAbsent(name, k -> new Operation()).events.increment();
+        }
+
+        void error(String name) {
+            operations.computeIfAbsent(name, k -> new Operation()).errors.increment();
+        }
+
+        /** @return false jika ada operasi yang melewati batas error. */
+        boolean report(double elapsedSeconds, double maxErrorRate) {
+            boolean passed = true;
+            System.out.printf("%n%-16s %9s %8s %9s %9s %9s %9s%n", "operation", "count", "errors", "ops/s", "p50 ms", "p99 ms", "max ms");
+            for (Map.Entry<String, Operation> entry : new TreeMap<>(operations).entrySet()) {
+                Operation op = entry.getValue();
+                long[] samples = op.snapshot();
+                long count = samples.length + op.events.sum();
+                long errors = op.errors.sum();
+                if (samples.length == 0) {
+                    System.out.printf("%-16s %9d %8d %9.1f %9s %9s %9s%n", entry.getKey(), count, errors, count / elapsedSeconds, "-", "-", "-");
+                } else {
+                    Arrays.sort(samples);
+                    System.out.printf("%-16s %9d %8d %9.1f %9.2f %9.2f %9.2f%n", entry.getKey(), count, errors,
+                            count / elapsedSeconds, millis(percentile(samples, 0.50)), millis(percentile(samples, 0.99)),
+                            millis(samples[samples.length - 1]));
+                }
+                if (errors > count * maxErrorRate) {
+                    passed = false;
+                }
+            }
+            return passed;
+        }
+
+        private static long percentile(long[] sorted, double p) {
+            return sorted[Math.min(sorted.length - 1, (int) Math.ceil(p * sorted.length) - 1)];
+        }
+
+        private static double millis(long nanos) {
+            return nanos / 1e6;
+        }
+    }
+
+    private static final class Operation {
+        private final LongAdder errors = new LongAdder();
+        private final LongAdder events = new LongAdder();
+        private final List<long[]> chunks = new ArrayList<>();
+        private long[] current = new long[4096];
+        private int size;
+
+        synchronized void add(long nanos) {
+            if (size == current.length) {
+                chunks.add(current);
+                current = new long[current.length];
+                size = 0;
+            }
+            current[size++] = nanos;
+        }
+
+        synchronized long[] snapshot() {
+            long[] all = new long[chunks.size() * current.length + size];
+            int offset = 0;
+            for (long[] chunk : chunks) {
+                System.arraycopy(chunk, 0, all, offset, chunk.length);
+                offset += chunk.length;
+            }
+            System.arraycopy(current, 0, all, offset, size);
+            return all;
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package com.zeroends.skinhub;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Server MineSkin palsu di 127.0.0.1 (port acak) yang menjawab POST /generate/upload.
+ * Latensi, burst 429 (dengan Retry-After) dan error 500 bisa diatur; setiap skin mendapat texture unik.
+ */
+final class MineSkinStub {
+
+    private final long latencyMillis;
+    private final long jitterMillis;
+    private final double failureRate;
+    private final int rateLimitEvery;
+    private final int rateLimitBurst;
+    private final int retryAfterSeconds;
+
+    private final AtomicLong requestCounter = new AtomicLong();
+    private final LongAdder ok = new LongAdder();
+    private final LongAdder rateLimited = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private HttpServer server;
+
+    /**
+     * @param rateLimitEvery panjang satu siklus request; burst 429 ada di akhir setiap siklus (0 = tidak pernah).
+     * @param rateLimitBurst jumlah request berturut-turut yang dijawab 429 dalam satu burst.
+     */
+    MineSkinStub(long latencyMillis, long jitterMillis, double failureRate,
+                 int rateLimitEvery, int rateLimitBurst, int retryAfterSeconds) {
+        this.latencyMillis = latencyMillis;
+        this.jitterMillis = jitterMillis;
+        this.failureRate = failureRate;
+        this.rateLimitEvery = rateLimitEvery;
+        this.rateLimitBurst = rateLimitBurst;
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    /** @return URL upload untuk config mineskin.api-url. */
+    String start() throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+        server.createContext("/generate/upload", this::handle);
+        server.start();
+        return "http://127.0.0.1:" + server.getAddress().getPort() + "/generate/upload";
+    }
+
+    void stop() {
+        if (server != null) {
+            server.stop(0);
+        }
+    }
+
+    long okCount() { return ok.sum(); }
+    long rateLimitedCount() { return rateLimited.sum(); }
+    long failedCount() { return failed.sum(); }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange; InputStream body = exchange.getRequestBody()) {
+            body.transferTo(OutputStream.nullOutputStream());
+            long n = requestCounter.getAndIncrement();
+            if (!"POST".equals(exchange.getRequestMethod())) {
+                respond(exchange, 405, "{\"error\":\"method not allowed\"}");
+                return;
+            }
+            sleep();
+            if (rateLimitEvery > 0 && n % rateLimitEvery >= rateLimitEvery - rateLimitBurst) {
+                rateLimited.increment();
+                exchange.getResponseHeaders().set("Retry-After", Integer.toString(retryAfterSeconds));
+                respond(exchange, 429, "{\"error\":\"Too many requests\"}");
+                return;
+            }
+            if (failureRate > 0 && ThreadLocalRandom.current().nextDouble() < failureRate) {
+                failed.increment();
+                respond(exchange, 500, "{\"error\":\"stub failure\"}");
+                return;
+            }
+            ok.increment();
+            respond(exchange, 200, successBody(n));
+        }
+    }
+
+    private void sleep() {
+        long delay = latencyMillis + (jitterMillis > 0 ? ThreadLocalRandom.current().nextLong(jitterMillis + 1) : 0);
+        if (delay <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(delay);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static String successBody(long n) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        String hash = Long.toHexString(random.nextLong()) + Long.toHexString(random.nextLong());
+        String textureJson = "{\"timestamp\":" + System.currentTimeMillis() + ",\"profileName\":\"SkinHub\","
+                + "\"textures\":{\"SKIN\":{\"url\":\"http://textures.minecraft.net/texture/" + hash + "\"}}}";
+        byte[] signature = new byte[512];
+        random.nextBytes(signature);
+        Base64.Encoder b64 = Base64.getEncoder();
+        return "{\"data\":{\"name\":\"loadtest-" + n + "\",\"texture\":{\"value\":\""
+                + b64.encodeToString(textureJson.getBytes(StandardCharsets.UTF_8))
+                + "\",\"signature\":\"" + b64.encodeToString(signature) + "\"}}}";
+    }
+
+    private static void respond(HttpExchange exchange, int status, String json) throws IOException {
+        byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        exchange.getResponseBody().write(bytes);
+    }
+}
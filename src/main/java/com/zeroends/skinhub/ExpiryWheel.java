@@ -0,0 +1,117 @@
+package com.zeroends.skinhub;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * Timing wheel hierarkis untuk expiry: schedule, cancel, dan expire O(1) amortized tanpa memindai semua entri.
+ *
+ * Level 0 berisi 64 slot berukuran 1 tick, level berikutnya 64x lebih kasar. Saat level bawah berputar
+ * penuh, satu slot level atas di-cascade (entri dimasukkan ulang ke level yang lebih halus).
+ * Dengan tick 1 detik, 5 level mencakup sekitar 34 tahun. Tidak thread-safe; pemanggil yang mengunci.
+ */
+public class ExpiryWheel<K> {
+
+    private static final int BITS = 6;
+    private static final int SLOTS = 1 << BITS;
+    private static final int MASK = SLOTS - 1;
+    private static final int LEVELS = 5;
+
+    private final long tickMillis;
+    private final List<List<Set<K>>> wheels = new ArrayList<>(LEVELS);
+    private final Map<K, Long> deadlines = new HashMap<>();
+    private final Map<K, Set<K>> slotOf = new HashMap<>();
+    private long currentTick;
+
+    public ExpiryWheel(long tickMillis, long nowMillis) {
+        this.tickMillis = Math.max(1, tickMillis);
+        this.currentTick = nowMillis / this.tickMillis;
+        for (int level = 0; level < LEVELS; level++) {
+            List<Set<K>> slots = new ArrayList<>(SLOTS);
+            for (int i = 0; i < SLOTS; i++) {
+                slots.add(new HashSet<>());
+            }
+            wheels.add(slots);
+        }
+    }
+
+    /** Menjadwalkan (atau menjadwalkan ulang) key agar expire pada waktu tersebut. */
+    public void schedule(K key, long expiresAtMillis) {
+        cancel(key);
+        long deadlineTick = Math.max(currentTick + 1, (expiresAtMillis + tickMillis - 1) / tickMillis);
+        deadlines.put(key, deadlineTick);
+        place(key, deadlineTick);
+    }
+
+    public void cancel(K key) {
+        Set<K> slot = slotOf.remove(key);
+        if (slot != null) {
+            slot.remove(key);
+            deadlines.remove(key);
+        }
+    }
+
+    public int size() {
+        return deadlines.size();
+    }
+
+    /**
+     * Memajukan wheel sampai waktu sekarang dan mengembalikan setiap key yang expire lewat callback.
+     * Biaya sebanding dengan jumlah tick yang terlewati ditambah jumlah entri yang dipindah / expire.
+     */
+    public void advance(long nowMillis, Consumer<K> onExpire) {
+        long targetTick = nowMillis / tickMillis;
+        while (currentTick < targetTick) {
+            currentTick++;
+            cascade();
+            Set<K> due = wheels.get(0).get((int) (currentTick & MASK));
+            if (due.isEmpty()) {
+                continue;
+            }
+            List<K> expired = new ArrayList<>(due);
+            due.clear();
+            for (K key : expired) {
+                slotOf.remove(key);
+                deadlines.remove(key);
+                onExpire.accept(key);
+            }
+        }
+    }
+
+    private void cascade() {
+        for (int level = 1; level < LEVELS; level++) {
+            // Level ini hanya di-cascade saat semua level di bawahnya baru saja berputar penuh
+            if ((currentTick & ((1L << (BITS * level)) - 1)) != 0) {
+                return;
+            }
+            Set<K> slot = wheels.get(level).get((int) ((currentTick >>> (BITS * level)) & MASK));
+            if (slot.isEmpty()) {
+                continue;
+            }
+            List<K> moved = new ArrayList<>(slot);
+            slot.clear();
+            for (K key : moved) {
+                place(key, deadlines.get(key));
+            }
+        }
+    }
+
+    private void place(K key, long deadlineTick) {
+        long delta = deadlineTick - currentTick;
+        int level = 0;
+        while (level < LEVELS - 1 && delta >= (1L << (BITS * (level + 1)))) {
+            level++;
+        }
+        // Di luar jangkauan level teratas: parkir di slot terjauh, akan di-cascade ulang nanti
+        long maxDelta = (1L << (BITS * (level + 1))) - 1;
+        long tick = delta > maxDelta ? currentTick + maxDelta : deadlineTick;
+        Set<K> slot = wheels.get(level).get((int) ((tick >>> (BITS * level)) & MASK));
+        slot.add(key);
+        slotOf.put(key, slot);
+    }
+}
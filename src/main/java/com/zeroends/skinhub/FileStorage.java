@@ -0,0 +1,586 @@
+package com.zeroends.skinhub;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonIOException;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.UnaryOperator;
+import java.util.logging.Level;
+
+/**
+ * Storage berbasis file: snapshot skins.json / skins.dat (dengan journal opsional) atau shard per pemain.
+ */
+public class FileStorage implements Storage {
+
+    private final SkinHub plugin;
+    private final Gson gson;
+    // Diganti saat loadData (di thread loader), dibaca dari thread lain
+    private volatile ConcurrentMap<UUID, PlayerData> playerDataMap;
+    private final File dataFile;
+    private final File jsonFile;
+    private final boolean binary;
+    // Snapshot ditulis lewat SnapshotFile: file sementara + rename atomik, backup dirotasi dengan rename
+    private final boolean compress;
+    private final int backups;
+    private static final java.lang.reflect.Type DATA_TYPE =
+            new com.google.gson.reflect.TypeToken<ConcurrentMap<UUID, PlayerData>>() {}.getType();
+
+    // Journal mode: mutasi ditulis sebagai record kecil, snapshot penuh hanya saat compaction
+    private final StorageJournal journal;
+    private final long compactThresholdBytes;
+    private final Set<UUID> dirtyPlayers = ConcurrentHashMap.newKeySet();
+    private final Object writeLock = new Object();
+
+    // Layout sharded: data pemain dimuat saat pertama diakses dan di-evict jika offline & bersih
+    private final ShardedPlayerStore shardStore;
+    private final int maxCachedPlayers;
+    private final long idleEvictMillis;
+    private final ConcurrentMap<UUID, Long> lastAccess = new ConcurrentHashMap<>();
+    private final Set<UUID> onlinePlayers = ConcurrentHashMap.newKeySet();
+
+    // Texture skin dibagi antar pemain; hanya data yang ada di memori yang memegang referensi
+    private final TextureStore textureStore = new TextureStore();
+
+    private final Metrics.Histogram saveLatency;
+    private final Metrics.Counter savedBytes;
+
+    public FileStorage(SkinHub plugin, Gson gson) {
+        this.plugin = plugin;
+        this.gson = gson;
+        this.playerDataMap = new ConcurrentHashMap<>();
+        // Format snapshot: skins.json (Gson) atau skins.dat (SkinDataCodec)
+        this.binary = "binary".equalsIgnoreCase(plugin.getConfig().getString("storage.format", "json"));
+        this.jsonFile = new File(plugin.getDataFolder(), "skins.json");
+        this.dataFile = binary ? new File(plugin.getDataFolder(), "skins.dat") : jsonFile;
+        this.compress = "gzip".equalsIgnoreCase(plugin.getConfig().getString("storage.compression", "none"));
+        this.backups = Math.max(0, plugin.getConfig().getInt("storage.backups", 1));
+
+        boolean sharded = "sharded".equalsIgnoreCase(plugin.getConfig().getString("storage.layout", "single"));
+        this.shardStore = sharded ? new ShardedPlayerStore(new File(plugin.getDataFolder(), "players"), gson) : null;
+        this.maxCachedPlayers = Math.max(16, plugin.getConfig().getInt("storage.cache.max-players", 5000));
+        this.idleEvictMillis = Math.max(0, plugin.getConfig().getLong("storage.cache.idle-seconds", 300)) * 1000L;
+
+        // Journal hanya untuk layout single; layout sharded sudah menulis per pemain
+        boolean journalEnabled = !sharded && plugin.getConfig().getBoolean("storage.journal.enabled", true);
+        this.journal = journalEnabled
+                ? new StorageJournal(new File(plugin.getDataFolder(), "skins.journal"), gson)
+                : null;
+        this.compactThresholdBytes = Math.max(64, plugin.getConfig().getLong("storage.journal.compact-threshold-kb", 8192)) * 1024;
+
+        Metrics metrics = plugin.getMetrics();
+        this.saveLatency = metrics.histogram("skinhub_storage_save_seconds",
+                "Time spent persisting skin data", Metrics.LATENCY_BUCKETS, "operation");
+        this.savedBytes = metrics.counter("skinhub_storage_save_bytes_total",
+                "Bytes written by skin data saves", "operation");
+        // Lambda, bukan method reference: map diganti saat loadData
+        metrics.gauge("skinhub_storage_cached_players", "Players whose skin data is held in memory", () -> playerDataMap.size());
+        metrics.gauge("skinhub_storage_dirty_players", "Players with changes not yet saved", dirtyPlayers::size);
+    }
+
+    /**
+     * Memuat data skin dari snapshot (skins.json / skins.dat), lalu memutar ulang journal jika aktif.
+     * Pada layout sharded tidak ada yang dimuat di sini; snapshot lama dimigrasikan ke shard.
+     * Pada format binary, skins.json lama otomatis dimigrasikan ke skins.dat.
+     */
+    @Override
+    public boolean loadData() {
+        if (!loadSnapshotAndJournal()) {
+            return false;
+        }
+        if (shardStore == null) {
+            playerDataMap.replaceAll((uuid, data) -> textureStore.acquireAll(data));
+            plugin.logDebug(() -> "Texture store holds " + textureStore.size() + " unique texture(s).");
+        }
+        return true;
+    }
+
+    private boolean loadSnapshotAndJournal() {
+        if (shardStore != null) {
+            File legacy = binary && dataFile.exists() ? dataFile : jsonFile;
+            return !legacy.exists() || migrateToShards(legacy);
+        }
+        if (binary && !dataFile.exists() && jsonFile.exists()) {
+            return migrateToBinary();
+        }
+        if (!dataFile.exists()) {
+            if (!SnapshotFile.backups(dataFile.toPath(), backups).isEmpty()) {
+                // Rotasi backup sempat memindahkan file utama sebelum rename terakhir (tanpa dukungan hard link)
+                plugin.getLogger().warning(dataFile.getName() + " is missing but a backup exists.");
+                return loadBackup();
+            }
+            plugin.logDebug(dataFile.getName() + " not found. A new one will be created on save.");
+            return replayJournal();
+        }
+
+        try {
+            ConcurrentMap<UUID, PlayerData> loadedMap = readSnapshot(dataFile);
+            if (loadedMap != null) {
+                this.playerDataMap = loadedMap;
+                plugin.logDebug(() -> "Successfully loaded " + playerDataMap.size() + " player data entries.");
+            } else {
+                this.playerDataMap = new ConcurrentHashMap<>();
+                plugin.logDebug(dataFile.getName() + " was empty or malformed. Initializing new map.");
+            }
+            return replayJournal();
+        } catch (InterruptedIOException e) {
+            // Load dibatalkan karena plugin dimatikan; file tidak rusak, jadi backup tidak disentuh
+            return false;
+        } catch (IOException e) {
+            plugin.getLogger().severe("Could not read " + dataFile.getName() + ": " + e.getMessage());
+            return loadBackup();
+        }
+    }
+
+    /**
+     * Mengekspor seluruh data ke file JSON (format skins.json) untuk debugging.
+     * @return false jika layout sharded (shard sudah berupa JSON) atau penulisan gagal.
+     */
+    @Override
+    public boolean exportJson(File target) {
+        if (shardStore != null) {
+            plugin.getLogger().info("Sharded layout already stores players as JSON under players/.");
+            return false;
+        }
+        try {
+            SkinDataCodec.exportJson(playerDataMap, target.toPath(), gson);
+            return true;
+        } catch (IOException e) {
+            plugin.getLogger().severe("Could not export skin data to " + target.getName() + ": " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Menyimpan perubahan ke disk.
+     * Dalam journal mode hanya pemain yang berubah yang ditulis ke journal (satu fsync per kelompok);
+     * tanpa journal, seluruh snapshot ditulis ulang.
+     */
+    @Override
+    public boolean saveData() {
+        long start = System.nanoTime();
+        if (shardStore != null) {
+            boolean ok;
+            synchronized (writeLock) {
+                ok = flushShards();
+            }
+            saveLatency.observeSince(start, "shards");
+            trimCache();
+            return ok;
+        }
+        if (journal == null) {
+            synchronized (writeLock) {
+                dirtyPlayers.clear();
+                boolean ok = writeSnapshot();
+                saveLatency.observeSince(start, "snapshot");
+                return ok;
+            }
+        }
+        synchronized (writeLock) {
+            boolean ok = flushJournal();
+            saveLatency.observeSince(start, "journal");
+            return ok;
+        }
+    }
+
+    /** true jika journal sudah melewati batas ukuran dan perlu di-compact menjadi snapshot. */
+    @Override
+    public boolean needsCompaction() {
+        return journal != null && journal.size() > compactThresholdBytes;
+    }
+
+    /** Menulis snapshot penuh lalu mengosongkan journal. Dipakai saat shutdown dan compaction. */
+    @Override
+    public boolean compact() {
+        if (shardStore != null) {
+            return saveData();
+        }
+        synchronized (writeLock) {
+            long start = System.nanoTime();
+            try {
+                if (!writeSnapshot()) {
+                    return false;
+                }
+                saveLatency.observeSince(start, "compact");
+                if (journal != null) {
+                    // Pemain yang masih dirty tetap di set dan akan ditulis ulang pada flush berikutnya;
+                    // record bersifat upsert sehingga aman walau sudah tercakup snapshot.
+                    journal.reset();
+                    plugin.logDebug(() -> "Journal compacted into " + dataFile.getName() + ".");
+                }
+                return true;
+            } catch (IOException e) {
+                plugin.getLogger().severe("Could not reset skins.journal after compaction: " + e.getMessage());
+                return false;
+            }
+        }
+    }
+
+    /** Menandai data pemain berubah agar ikut tersimpan pada save berikutnya. */
+    @Override
+    public void markDirty(UUID uuid) {
+        dirtyPlayers.add(uuid);
+    }
+
+    /** Menandai pemain online; data pemain online tidak pernah di-evict dari cache. */
+    @Override
+    public void setOnline(UUID uuid, boolean online) {
+        if (online) {
+            onlinePlayers.add(uuid);
+            lastAccess.put(uuid, System.currentTimeMillis());
+        } else {
+            onlinePlayers.remove(uuid);
+        }
+    }
+
+    /** Memuat data pemain ke cache lebih awal (mis. saat pre-login) agar tidak membaca disk di main thread. */
+    @Override
+    public void preload(UUID uuid) {
+        findPlayerData(uuid);
+    }
+
+    /** Menutup journal; dipanggil terakhir saat plugin dimatikan. */
+    @Override
+    public void close() {
+        if (journal != null) {
+            journal.close();
+        }
+    }
+
+    private boolean flushJournal() {
+        if (dirtyPlayers.isEmpty()) {
+            return true;
+        }
+        List<UUID> drained = new ArrayList<>(dirtyPlayers.size());
+        List<StorageJournal.Record> records = new ArrayList<>(dirtyPlayers.size());
+        Iterator<UUID> it = dirtyPlayers.iterator();
+        while (it.hasNext()) {
+            UUID uuid = it.next();
+            it.remove();
+            drained.add(uuid);
+            records.add(new StorageJournal.Record(uuid, playerDataMap.get(uuid)));
+        }
+        try {
+            long bytes = journal.append(records);
+            savedBytes.add(bytes, "journal");
+            plugin.logDebug(() -> "Journal: appended " + records.size() + " record(s), " + bytes + " bytes.");
+            return true;
+        } catch (IOException e) {
+            plugin.getLogger().severe("Could not append to skins.journal: " + e.getMessage());
+            // Kembalikan ke dirty set agar dicoba lagi pada save berikutnya
+            dirtyPlayers.addAll(drained);
+            return false;
+        }
+    }
+
+    private boolean flushShards() {
+        if (dirtyPlayers.isEmpty()) {
+            return true;
+        }
+        boolean ok = true;
+        Iterator<UUID> it = dirtyPlayers.iterator();
+        while (it.hasNext()) {
+            UUID uuid = it.next();
+            it.remove();
+            PlayerData data = playerDataMap.get(uuid);
+            try {
+                if (data == null || data.isEmpty()) {
+                    shardStore.delete(uuid);
+                } else {
+                    savedBytes.add(shardStore.save(uuid, data), "shards");
+                }
+            } catch (IOException e) {
+                plugin.getLogger().severe("Could not save shard for " + uuid + ": " + e.getMessage());
+                dirtyPlayers.add(uuid);
+                ok = false;
+            }
+        }
+        return ok;
+    }
+
+    /**
+     * Membuang entri cache tertua jika jumlahnya melewati batas.
+     * Hanya entri yang bersih, milik pemain offline, dan tidak diakses selama idle-seconds yang dibuang,
+     * sehingga referensi yang baru saja diambil oleh handler lain tidak terlepas dari map.
+     */
+    @Override
+    public void trimCache() {
+        if (shardStore == null) {
+            return;
+        }
+        int excess = playerDataMap.size() - maxCachedPlayers;
+        if (excess <= 0) {
+            return;
+        }
+        long cutoff = System.currentTimeMillis() - idleEvictMillis;
+        List<Map.Entry<UUID, Long>> candidates = new ArrayList<>();
+        for (Map.Entry<UUID, Long> entry : lastAccess.entrySet()) {
+            UUID uuid = entry.getKey();
+            if (entry.getValue() <= cutoff && !onlinePlayers.contains(uuid) && !dirtyPlayers.contains(uuid)) {
+                candidates.add(entry);
+            }
+        }
+        candidates.sort(Map.Entry.comparingByValue());
+        int evicted = 0;
+        for (Map.Entry<UUID, Long> entry : candidates) {
+            if (evicted >= excess) {
+                break;
+            }
+            UUID uuid = entry.getKey();
+            if (!lastAccess.remove(uuid, entry.getValue())) {
+                continue; // sempat disentuh sejak kandidat dipilih
+            }
+            // compute() menyerialkan eviction dengan computeIfAbsent di getPlayerData untuk key yang sama
+            boolean[] removed = {false};
+            playerDataMap.compute(uuid, (k, v) -> {
+                if (v == null || lastAccess.containsKey(k) || dirtyPlayers.contains(k)) {
+                    return v;
+                }
+                textureStore.releaseAll(v);
+                removed[0] = true;
+                return null;
+            });
+            if (removed[0]) {
+                evicted++;
+            }
+        }
+        if (evicted > 0) {
+            int evictedCount = evicted;
+            plugin.logDebug(() -> "Evicted " + evictedCount + " idle player data entries from cache.");
+        }
+    }
+
+    /** Memindahkan snapshot lama (dan journal yang tersisa) ke layout sharded, sekali saja. */
+    private boolean migrateToShards(File source) {
+        plugin.getLogger().info("Migrating " + source.getName() + " to sharded player storage...");
+        ConcurrentMap<UUID, PlayerData> legacy;
+        try {
+            legacy = readSnapshot(source);
+        } catch (IOException e) {
+            plugin.getLogger().severe("Could not read " + source.getName() + " for migration: " + e.getMessage());
+            return false;
+        }
+        if (legacy == null) {
+            legacy = new ConcurrentHashMap<>();
+        }
+        File legacyJournal = new File(plugin.getDataFolder(), "skins.journal");
+        try {
+            new StorageJournal(legacyJournal, gson).replay(legacy);
+            for (Map.Entry<UUID, PlayerData> entry : legacy.entrySet()) {
+                if (entry.getValue() != null && !entry.getValue().isEmpty()) {
+                    shardStore.save(entry.getKey(), entry.getValue());
+                }
+            }
+            Files.move(source.toPath(), new File(plugin.getDataFolder(), source.getName() + ".migrated").toPath(),
+                    StandardCopyOption.REPLACE_EXISTING);
+            if (legacyJournal.exists()) {
+                Files.move(legacyJournal.toPath(), new File(plugin.getDataFolder(), "skins.journal.migrated").toPath(),
+                        StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            plugin.getLogger().log(Level.SEVERE, "Migration to sharded storage failed", e);
+            return false;
+        }
+        plugin.getLogger().info("Migrated " + legacy.size() + " player(s); old file kept as " + source.getName() + ".migrated.");
+        return true;
+    }
+
+    /** Memindahkan skins.json (dan journal) ke skins.dat biner, sekali saja. */
+    private boolean migrateToBinary() {
+        plugin.getLogger().info("Migrating skins.json to binary skins.dat...");
+        try {
+            ConcurrentMap<UUID, PlayerData> legacy = readSnapshot(jsonFile);
+            this.playerDataMap = legacy != null ? legacy : new ConcurrentHashMap<>();
+        } catch (IOException e) {
+            plugin.getLogger().severe("Could not read skins.json for migration: " + e.getMessage());
+            return false;
+        }
+        if (!replayJournal() || !compact()) {
+            return false;
+        }
+        try {
+            Files.move(jsonFile.toPath(), new File(plugin.getDataFolder(), "skins.json.migrated").toPath(),
+                    StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            plugin.getLogger().warning("Migrated to skins.dat but could not rename skins.json: " + e.getMessage());
+        }
+        plugin.getLogger().info("Migrated " + playerDataMap.size() + " player(s); old file kept as skins.json.migrated.");
+        return true;
+    }
+
+    /**
+     * Membaca snapshot sesuai formatnya (ditentukan dari nama file); kompresi gzip dikenali otomatis.
+     * JSON dibaca bertahap dan entri pemain di-bind paralel (SnapshotJsonReader).
+     */
+    private ConcurrentMap<UUID, PlayerData> readSnapshot(File file) throws IOException {
+        if (file.getName().startsWith("skins.dat")) {
+            return SkinDataCodec.read(file.toPath());
+        }
+        return new SnapshotJsonReader(gson, SnapshotJsonReader.defaultWorkers()).read(file.toPath());
+    }
+
+    private PlayerData loadShard(UUID uuid) {
+        try {
+            PlayerData loaded = shardStore.load(uuid);
+            return loaded != null ? textureStore.acquireAll(loaded) : null;
+        } catch (IOException e) {
+            plugin.getLogger().severe("Could not load shard for " + uuid + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    private boolean replayJournal() {
+        if (journal == null) {
+            return true;
+        }
+        try {
+            int applied = journal.replay(playerDataMap);
+            if (applied > 0) {
+                plugin.logDebug(() -> "Replayed " + applied + " journal record(s) from skins.journal.");
+            }
+            return true;
+        } catch (IOException e) {
+            plugin.getLogger().severe("Could not replay skins.journal: " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Menulis snapshot penuh ke file sementara lalu rename atomik; file utama tidak pernah setengah tertulis.
+     * Snapshot sebelumnya menjadi backup lewat rename, tanpa menyalin isi file.
+     */
+    private boolean writeSnapshot() {
+        try {
+            long bytes = SnapshotFile.write(dataFile.toPath(), backups, compress, out -> {
+                if (binary) {
+                    SkinDataCodec.write(playerDataMap, out);
+                } else {
+                    Writer writer = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+                    gson.toJson(playerDataMap, DATA_TYPE, writer);
+                    writer.flush();
+                }
+            });
+            savedBytes.add(bytes, "snapshot");
+            plugin.logDebug(() -> "Wrote " + bytes + " bytes to " + dataFile.getName());
+            return true;
+        } catch (IOException | JsonIOException e) {
+            plugin.getLogger().severe("Could not save data to " + dataFile.getName() + ": " + e.getMessage());
+            return false;
+        }
+    }
+
+    /** Mencoba memuat dari file backup (yang terbaru lebih dulu) jika file utama gagal. */
+    private boolean loadBackup() {
+        List<Path> candidates = SnapshotFile.backups(dataFile.toPath(), backups);
+        if (candidates.isEmpty()) {
+            plugin.getLogger().severe(dataFile.getName() + " is corrupted and no backup (" + dataFile.getName() + ".bak) was found.");
+            return false;
+        }
+        for (Path backup : candidates) {
+            plugin.getLogger().warning("Attempting to load data from backup file (" + backup.getFileName() + ")...");
+            try {
+                ConcurrentMap<UUID, PlayerData> loadedMap = readSnapshot(backup.toFile());
+                if (loadedMap == null) {
+                    plugin.getLogger().severe("Backup file " + backup.getFileName() + " is also corrupted.");
+                    continue;
+                }
+                this.playerDataMap = loadedMap;
+                plugin.getLogger().info("Successfully loaded data from backup.");
+                setAsideCorrupted();
+                replayJournal();
+                compact();
+                return true;
+            } catch (IOException e) {
+                plugin.getLogger().severe("Could not read backup file " + backup.getFileName() + ": " + e.getMessage());
+            }
+        }
+        return false;
+    }
+
+    // File utama yang rusak disimpan sebagai .corrupt agar tidak ikut dirotasi menggantikan backup yang masih baik
+    private void setAsideCorrupted() {
+        if (!dataFile.exists()) {
+            return;
+        }
+        try {
+            Files.move(dataFile.toPath(), new File(plugin.getDataFolder(), dataFile.getName() + ".corrupt").toPath(),
+                    StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            plugin.getLogger().warning("Could not move aside corrupted " + dataFile.getName() + ": " + e.getMessage());
+        }
+    }
+
+    @Override
+    public TextureStore getTextureStore() {
+        return textureStore;
+    }
+
+    /**
+     * Data yang sudah dimuat ke memori (layout single: seluruh data setelah {@link #loadData}).
+     * Dipakai untuk impor ke storage lain; null pada layout sharded.
+     */
+    Map<UUID, PlayerData> loadedPlayers() {
+        return shardStore == null ? playerDataMap : null;
+    }
+
+    /** Mendapatkan data pemain berdasarkan UUID, membuat entri baru jika belum ada. */
+    @Override
+    public PlayerData getPlayerData(UUID uuid) {
+        if (shardStore == null) {
+            return playerDataMap.computeIfAbsent(uuid, k -> new PlayerData());
+        }
+        lastAccess.put(uuid, System.currentTimeMillis());
+        return playerDataMap.computeIfAbsent(uuid, k -> {
+            PlayerData loaded = loadShard(k);
+            return loaded != null ? loaded : new PlayerData();
+        });
+    }
+
+    @Override
+    public PlayerData update(UUID uuid, UnaryOperator<PlayerData> change) {
+        while (true) {
+            PlayerData current = getPlayerData(uuid);
+            PlayerData next = change.apply(current);
+            // PlayerData tidak meng-override equals, jadi replace() adalah compare-and-swap berdasarkan identitas
+            if (next == current || playerDataMap.replace(uuid, current, next)) {
+                return next;
+            }
+        }
+    }
+
+    /**
+     * Mencari data pemain tanpa membuat entri kosong (untuk lookup read-only seperti dashboard).
+     * @return PlayerData, atau null jika pemain belum punya data.
+     */
+    @Override
+    public PlayerData findPlayerData(UUID uuid) {
+        PlayerData data = playerDataMap.get(uuid);
+        if (shardStore == null) {
+            return data;
+        }
+        if (data == null) {
+            PlayerData loaded = loadShard(uuid);
+            if (loaded == null) {
+                return null;
+            }
+            PlayerData existing = playerDataMap.putIfAbsent(uuid, loaded);
+            if (existing != null) {
+                textureStore.releaseAll(loaded); // kalah race dengan loader lain
+            }
+            data = existing != null ? existing : loaded;
+        }
+        lastAccess.put(uuid, System.currentTimeMillis());
+        return data;
+    }
+}
@@ -0,0 +1,205 @@
+package com.zeroends.skinhub;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.DoubleSupplier;
+
+/**
+ * Registry metrik internal (counter, gauge, histogram) dengan output format teks Prometheus.
+ * Pencatatan hanya memakai LongAdder/DoubleAdder sehingga aman dan murah dari thread mana pun.
+ */
+public class Metrics {
+
+    /** Bucket default untuk latensi (detik), dari 1 ms sampai 30 detik. */
+    public static final double[] LATENCY_BUCKETS = {0.001, 0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10, 30};
+
+    // Diurutkan per nama agar output scrape stabil
+    private final ConcurrentMap<String, Family> families = new ConcurrentSkipListMap<>();
+
+    /** Mendaftarkan counter, atau mengembalikan counter yang sudah terdaftar dengan nama yang sama. */
+    public Counter counter(String name, String help, String... labelNames) {
+        return (Counter) families.computeIfAbsent(name, n -> new Counter(n, help, labelNames));
+    }
+
+    /** Mendaftarkan histogram, atau mengembalikan histogram yang sudah terdaftar dengan nama yang sama. */
+    public Histogram histogram(String name, String help, double[] buckets, String... labelNames) {
+        return (Histogram) families.computeIfAbsent(name, n -> new Histogram(n, help, buckets, labelNames));
+    }
+
+    /**
+     * Gauge dibaca saat scrape, jadi tidak ada biaya di jalur yang dipantau.
+     * Mendaftarkan ulang nama yang sama mengganti sumber nilainya (misalnya komponen yang dibuat ulang).
+     */
+    public void gauge(String name, String help, DoubleSupplier value) {
+        families.put(name, new Gauge(name, help, value));
+    }
+
+    /** Merender semua metrik dalam format teks Prometheus 0.0.4. */
+    public String scrape() {
+        StringBuilder out = new StringBuilder(4096);
+        for (Family family : families.values()) {
+            out.append("# HELP ").append(family.name).append(' ').append(family.help).append('\n');
+            out.append("# TYPE ").append(family.name).append(' ').append(family.type()).append('\n');
+            family.write(out);
+        }
+        return out.toString();
+    }
+
+    private abstract static class Family {
+        final String name;
+        final String help;
+        final String[] labelNames;
+
+        Family(String name, String help, String[] labelNames) {
+            this.name = name;
+            this.help = help;
+            this.labelNames = labelNames;
+        }
+
+        abstract String type();
+
+        abstract void write(StringBuilder out);
+
+        List<String> key(String[] labelValues) {
+            if (labelValues.length != labelNames.length) {
+                throw new IllegalArgumentException(name + " expects " + labelNames.length + " label value(s)");
+            }
+            return List.of(labelValues);
+        }
+
+        void labels(StringBuilder out, List<String> values, String extraName, String extraValue) {
+            if (values.isEmpty() && extraName == null) {
+                return;
+            }
+            out.append('{');
+            for (int i = 0; i < values.size(); i++) {
+                if (i > 0) out.append(',');
+                out.append(labelNames[i]).append("=\"").append(escape(values.get(i))).append('"');
+            }
+            if (extraName != null) {
+                if (!values.isEmpty()) out.append(',');
+                out.append(extraName).append("=\"").append(extraValue).append('"');
+            }
+            out.append('}');
+        }
+
+        private static String escape(String value) {
+            return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+        }
+    }
+
+    public static final class Counter extends Family {
+        private final Map<List<String>, LongAdder> values = new ConcurrentHashMap<>();
+
+        private Counter(String name, String help, String[] labelNames) {
+            super(name, help, labelNames);
+        }
+
+        public void inc(String... labelValues) {
+            add(1, labelValues);
+        }
+
+        public void add(long amount, String... labelValues) {
+            values.computeIfAbsent(key(labelValues), k -> new LongAdder()).add(amount);
+        }
+
+        @Override
+        String type() {
+            return "counter";
+        }
+
+        @Override
+        void write(StringBuilder out) {
+            values.forEach((labelValues, value) -> {
+                out.append(name);
+                labels(out, labelValues, null, null);
+                out.append(' ').append(value.sum()).append('\n');
+            });
+        }
+    }
+
+    public static final class Histogram extends Family {
+        private final double[] buckets;
+        private final Map<List<String>, Series> series = new ConcurrentHashMap<>();
+
+        private Histogram(String name, String help, double[] buckets, String[] labelNames) {
+            super(name, help, labelNames);
+            this.buckets = buckets.clone();
+            Arrays.sort(this.buckets);
+        }
+
+        public void observe(double value, String... labelValues) {
+            Series s = series.computeIfAbsent(key(labelValues), k -> new Series(buckets.length));
+            // Simpan per bucket (bukan kumulatif); dijumlahkan saat scrape
+            int index = Arrays.binarySearch(buckets, value);
+            s.counts[index >= 0 ? index : -index - 1].increment();
+            s.sum.add(value);
+        }
+
+        /** Mencatat durasi sejak startNanos (dari System.nanoTime) dalam detik. */
+        public void observeSince(long startNanos, String... labelValues) {
+            observe((System.nanoTime() - startNanos) / 1e9, labelValues);
+        }
+
+        @Override
+        String type() {
+            return "histogram";
+        }
+
+        @Override
+        void write(StringBuilder out) {
+            series.forEach((labelValues, s) -> {
+                long cumulative = 0;
+                for (int i = 0; i <= buckets.length; i++) {
+                    cumulative += s.counts[i].sum();
+                    out.append(name).append("_bucket");
+                    labels(out, labelValues, "le", i < buckets.length ? Double.toString(buckets[i]) : "+Inf");
+                    out.append(' ').append(cumulative).append('\n');
+                }
+                out.append(name).append("_sum");
+                labels(out, labelValues, null, null);
+                out.append(' ').append(s.sum.sum()).append('\n');
+                out.append(name).append("_count");
+                labels(out, labelValues, null, null);
+                out.append(' ').append(cumulative).append('\n');
+            });
+        }
+
+        private static final class Series {
+            final LongAdder[] counts;
+            final DoubleAdder sum = new DoubleAdder();
+
+            Series(int buckets) {
+                counts = new LongAdder[buckets + 1];
+                for (int i = 0; i < counts.length; i++) {
+                    counts[i] = new LongAdder();
+                }
+            }
+        }
+    }
+
+    private static final class Gauge extends Family {
+        private final DoubleSupplier value;
+
+        private Gauge(String name, String help, DoubleSupplier value) {
+            super(name, help, new String[0]);
+            this.value = value;
+        }
+
+        @Override
+        String type() {
+            return "gauge";
+        }
+
+        @Override
+        void write(StringBuilder out) {
+            out.append(name).append(' ').append(value.getAsDouble()).append('\n');
+        }
+    }
+}
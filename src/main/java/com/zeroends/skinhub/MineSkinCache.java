@@ -0,0 +1,155 @@
+package com.zeroends.skinhub;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonIOException;
+import com.google.gson.JsonParseException;
+
+import java.awt.image.BufferedImage;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cache lokal hasil tanda tangan MineSkin, dengan key hash SHA-256 dari piksel yang sudah di-decode.
+ * Perbedaan metadata atau kompresi PNG tetap menghasilkan key yang sama, sehingga upload ulang
+ * gambar yang sama selesai tanpa memanggil API.
+ */
+public class MineSkinCache {
+
+    private final SkinHub plugin;
+    private final Gson gson;
+    private final File file;
+    private final int maxEntries;
+    private final Map<String, CachedSkin> entries;
+    private volatile boolean dirty;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    public MineSkinCache(SkinHub plugin, Gson gson) {
+        this.plugin = plugin;
+        this.gson = gson;
+        this.file = new File(plugin.getDataFolder(), "mineskin-cache.json");
+        this.maxEntries = Math.max(1, plugin.getConfig().getInt("mineskin.cache.max-entries", 10000));
+        // LinkedHashMap access-order: entri yang paling lama tidak dipakai dibuang lebih dulu
+        this.entries = new LinkedHashMap<>(256, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedSkin> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    /** Menghitung key cache dari piksel gambar; piksel transparan penuh dinormalisasi ke 0. */
+    public static String keyOf(BufferedImage image) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        int[] argb = image.getRGB(0, 0, width, height, null, 0, width);
+        ByteBuffer buf = ByteBuffer.allocate(8 + argb.length * 4);
+        buf.putInt(width).putInt(height);
+        for (int pixel : argb) {
+            buf.putInt((pixel >>> 24) == 0 ? 0 : pixel);
+        }
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(buf.array()));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    /** @return hasil tanda tangan yang tersimpan, atau null jika belum pernah ditandatangani. */
+    public CachedSkin get(String key) {
+        CachedSkin cached;
+        synchronized (entries) {
+            cached = entries.get(key);
+        }
+        if (cached != null) {
+            hits.incrementAndGet();
+        } else {
+            misses.incrementAndGet();
+        }
+        return cached;
+    }
+
+    public void put(String key, String texture, String signature) {
+        synchronized (entries) {
+            entries.put(key, new CachedSkin(texture, signature));
+        }
+        dirty = true;
+    }
+
+    public void load() {
+        if (!file.exists()) {
+            return;
+        }
+        try (BufferedReader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+            CacheFile loaded = gson.fromJson(reader, CacheFile.class);
+            if (loaded != null && loaded.entries != null) {
+                synchronized (entries) {
+                    // Disimpan dari yang paling lama dipakai, sehingga urutan LRU terjaga
+                    for (Entry entry : loaded.entries) {
+                        if (entry.key != null && entry.texture != null) {
+                            entries.put(entry.key, new CachedSkin(entry.texture, entry.signature));
+                        }
+                    }
+                }
+            }
+            plugin.logDebug(() -> "Loaded " + size() + " MineSkin cache entries.");
+        } catch (IOException | JsonParseException e) {
+            plugin.getLogger().warning("Could not read mineskin-cache.json, starting with an empty cache: " + e.getMessage());
+        }
+    }
+
+    /** Menyimpan cache ke disk jika ada entri baru sejak penyimpanan terakhir. */
+    public void saveIfDirty() {
+        if (!dirty) {
+            return;
+        }
+        dirty = false;
+        CacheFile out = new CacheFile();
+        synchronized (entries) {
+            out.entries = entries.entrySet().stream()
+                    .map(e -> new Entry(e.getKey(), e.getValue().texture(), e.getValue().signature()))
+                    .toList();
+        }
+        try {
+            SnapshotFile.write(file.toPath(), 0, false, stream -> {
+                Writer writer = new OutputStreamWriter(stream, StandardCharsets.UTF_8);
+                gson.toJson(out, writer);
+                writer.flush();
+            });
+        } catch (IOException | JsonIOException e) {
+            dirty = true;
+            plugin.getLogger().warning("Could not save mineskin-cache.json: " + e.getMessage());
+        }
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    public long getHits() { return hits.get(); }
+    public long getMisses() { return misses.get(); }
+
+    public record CachedSkin(String texture, String signature) {}
+
+    private static class CacheFile {
+        List<Entry> entries;
+    }
+
+    private record Entry(String key, String texture, String signature) {}
+}
@@ -0,0 +1,458 @@
+package com.zeroends.skinhub;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonIOException;
+import com.google.gson.JsonParseException;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+
+/**
+ * Antrian job MineSkin dengan jumlah request bersamaan yang dibatasi.
+ * Menghormati header rate limit (Retry-After, X-RateLimit-Remaining/Reset), mengulang dengan backoff,
+ * dan menyimpan job yang belum selesai di mineskin-jobs/ agar tetap jalan setelah restart.
+ * Seluruh state antrian hanya diubah di satu thread dispatcher.
+ */
+public class MineSkinQueue {
+
+    /** Penghubung ke SkinManager: membangun request dan menerapkan hasilnya. */
+    public interface Handler {
+        HttpRequest buildRequest(Job job);
+
+        SkinManager.UploadResult onSuccess(Job job, String responseBody);
+
+        String describeFailure(HttpResponse<String> response);
+
+        String describeNetworkError(Throwable cause);
+    }
+
+    public enum Status { QUEUED, RUNNING, DONE, FAILED }
+
+    private static final long FINISHED_RETENTION_MILLIS = TimeUnit.MINUTES.toMillis(10);
+    // Batas tunggu onDisable agar respons yang sedang diproses selesai diterapkan sebelum data disimpan
+    private static final long SHUTDOWN_WAIT_SECONDS = 5;
+
+    private final SkinHub plugin;
+    private final HttpClient httpClient;
+    private final Gson gson;
+    private final File jobDir;
+    private final ScheduledThreadPoolExecutor dispatcher;
+    private Handler handler;
+
+    private final int maxInFlight;
+    private final int maxRetries;
+    private final long baseBackoffMillis;
+    private final int maxPending;
+
+    // Hanya diakses dari thread dispatcher
+    private final Deque<Job> pending = new ArrayDeque<>();
+    private int inFlight;
+    private long blockedUntil;
+    private boolean pumpScheduled;
+
+    // Dibaca dari thread web untuk status endpoint
+    private final Map<String, Job> jobs = new ConcurrentHashMap<>();
+
+    private final Metrics.Histogram requestLatency;
+    private final Metrics.Counter responses;
+    private final Metrics.Counter jobsFinished;
+
+    public MineSkinQueue(SkinHub plugin, HttpClient httpClient, Gson gson) {
+        this.plugin = plugin;
+        this.httpClient = httpClient;
+        this.gson = gson;
+        this.jobDir = new File(plugin.getDataFolder(), "mineskin-jobs");
+        this.maxInFlight = Math.max(1, plugin.getConfig().getInt("mineskin.queue.max-in-flight", 2));
+        this.maxRetries = Math.max(0, plugin.getConfig().getInt("mineskin.queue.max-retries", 5));
+        this.baseBackoffMillis = Math.max(100, plugin.getConfig().getLong("mineskin.queue.base-backoff-ms", 2000));
+        this.maxPending = Math.max(1, plugin.getConfig().getInt("mineskin.queue.max-pending", 200));
+        Metrics metrics = plugin.getMetrics();
+        this.requestLatency = metrics.histogram("skinhub_mineskin_request_seconds",
+                "Latency of MineSkin API requests.", Metrics.LATENCY_BUCKETS, "status");
+        this.responses = metrics.counter("skinhub_mineskin_responses_total",
+                "MineSkin API responses by HTTP status (error = network failure).", "status");
+        this.jobsFinished = metrics.counter("skinhub_mineskin_jobs_total",
+                "Finished MineSkin upload jobs by final status.", "status");
+        metrics.gauge("skinhub_mineskin_queue_pending", "Upload jobs queued or running.", this::pendingCount);
+        this.dispatcher = new ScheduledThreadPoolExecutor(1, r -> {
+            Thread t = new Thread(r, "SkinHub-MineSkin");
+            t.setDaemon(true);
+            return t;
+        });
+        // Retry yang masih menunggu backoff tidak ditunggu saat shutdown; job-nya tetap tersimpan di disk
+        dispatcher.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+    }
+
+    /** Memulai dispatcher dan melanjutkan job yang tersimpan dari sesi sebelumnya. */
+    public void start(Handler handler) {
+        this.handler = handler;
+        dispatcher.execute(this::restorePersistedJobs);
+        dispatcher.scheduleAtFixedRate(this::purgeFinished, 1, 1, TimeUnit.MINUTES);
+    }
+
+    /**
+     * Menghentikan dispatcher setelah task yang sudah masuk (mis. respons yang sedang diterapkan) selesai,
+     * dengan batas waktu. Job yang belum selesai tetap tersimpan di disk dan dilanjutkan saat start berikutnya.
+     */
+    public void shutdown() {
+        dispatcher.shutdown();
+        try {
+            if (!dispatcher.awaitTermination(SHUTDOWN_WAIT_SECONDS, TimeUnit.SECONDS)) {
+                plugin.getLogger().warning("MineSkin queue did not stop in time; unfinished jobs resume on next start.");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            dispatcher.shutdownNow();
+        }
+    }
+
+    /**
+     * Memasukkan upload ke antrian. Job sudah tersimpan di disk saat method ini kembali,
+     * sehingga ID yang diterima pemain tetap berlaku walau server crash sesudahnya.
+     * @return job baru, atau null jika antrian penuh atau job tidak bisa disimpan.
+     */
+    public Job submit(UUID playerUuid, byte[] png, String fileName, String cacheKey) {
+        if (pendingCount() >= maxPending) {
+            return null;
+        }
+        Job job = new Job(UUID.randomUUID().toString(), playerUuid, fileName, cacheKey, png, System.currentTimeMillis());
+        try {
+            persist(job);
+        } catch (IOException | JsonIOException e) {
+            plugin.getLogger().warning("Could not persist MineSkin job " + job.id + ": " + e.getMessage());
+            return null;
+        }
+        jobs.put(job.id, job);
+        try {
+            dispatcher.execute(() -> {
+                pending.addLast(job);
+                pump();
+            });
+        } catch (RejectedExecutionException e) {
+            // Dispatcher sudah berhenti (plugin sedang dimatikan); job tetap di disk untuk start berikutnya
+            jobs.remove(job.id);
+            return null;
+        }
+        return job;
+    }
+
+    /** @return job milik pemain ini, atau null jika tidak ada / bukan miliknya. */
+    public Job getJob(String jobId, UUID playerUuid) {
+        Job job = jobId != null ? jobs.get(jobId) : null;
+        return job != null && job.playerUuid.equals(playerUuid) ? job : null;
+    }
+
+    public int pendingCount() {
+        int count = 0;
+        for (Job job : jobs.values()) {
+            if (job.status == Status.QUEUED || job.status == Status.RUNNING) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    // ======== Dispatcher (thread SkinHub-MineSkin) ========
+
+    private void pump() {
+        if (dispatcher.isShutdown()) {
+            return; // tidak mengirim request baru saat plugin dimatikan
+        }
+        long now = System.currentTimeMillis();
+        if (now < blockedUntil) {
+            schedulePump(blockedUntil - now);
+            return;
+        }
+        while (inFlight < maxInFlight && !pending.isEmpty()) {
+            dispatch(pending.pollFirst());
+        }
+    }
+
+    private void schedulePump(long delayMillis) {
+        if (pumpScheduled) {
+            return;
+        }
+        pumpScheduled = true;
+        dispatcher.schedule(() -> {
+            pumpScheduled = false;
+            pump();
+        }, delayMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private void dispatch(Job job) {
+        inFlight++;
+        job.attempts++;
+        job.status = Status.RUNNING;
+        job.message = "Signing skin with MineSkin...";
+        HttpRequest request;
+        try {
+            request = handler.buildRequest(job);
+        } catch (RuntimeException e) {
+            inFlight--;
+            finish(job, new SkinManager.UploadResult(false, "Could not build MineSkin request.", null, job.id));
+            return;
+        }
+        plugin.logDebug(() -> "MineSkin job " + job.id + " dispatched (attempt " + job.attempts + ")");
+        long started = System.nanoTime();
+        httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofString())
+                .whenComplete((response, error) -> {
+                    String status = error != null ? "error" : Integer.toString(response.statusCode());
+                    requestLatency.observeSince(started, status);
+                    responses.inc(status);
+                })
+                .whenCompleteAsync((response, error) -> onResponse(job, response, error), dispatcher);
+    }
+
+    private void onResponse(Job job, HttpResponse<String> response, Throwable error) {
+        inFlight--;
+        try {
+            if (error != null) {
+                // Timeout (HttpTimeoutException, termasuk connect timeout) diperlakukan sebagai error jaringan
+                Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+                plugin.getLogger().log(Level.WARNING, "MineSkin request for job " + job.id + " failed", cause);
+                retryOrFail(job, handler.describeNetworkError(cause), backoff(job.attempts));
+                return;
+            }
+            applyRateLimitHeaders(response);
+            int code = response.statusCode();
+            if (code == 200 || code == 201) {
+                finish(job, handler.onSuccess(job, response.body()));
+            } else if (code == 429) {
+                long wait = Math.max(retryAfterMillis(response), backoff(job.attempts));
+                blockedUntil = Math.max(blockedUntil, System.currentTimeMillis() + wait);
+                plugin.logDebug(() -> "MineSkin rate limited; pausing queue for " + wait + " ms.");
+                // 429 adalah batas antrian, bukan kegagalan job; tidak dihitung sebagai percobaan
+                job.attempts--;
+                retryOrFail(job, "Rate limited by MineSkin, waiting in queue...", 0);
+            } else if (code >= 500) {
+                retryOrFail(job, handler.describeFailure(response), backoff(job.attempts));
+            } else {
+                finish(job, new SkinManager.UploadResult(false, handler.describeFailure(response), null, job.id));
+            }
+        } catch (RuntimeException e) {
+            plugin.getLogger().log(Level.SEVERE, "Failed to process MineSkin response for job " + job.id, e);
+            finish(job, new SkinManager.UploadResult(false, "Failed to process API response.", null, job.id));
+        } finally {
+            pump();
+        }
+    }
+
+    private void retryOrFail(Job job, String message, long delayMillis) {
+        if (job.attempts > maxRetries) {
+            finish(job, new SkinManager.UploadResult(false, message, null, job.id));
+            return;
+        }
+        job.status = Status.QUEUED;
+        job.message = message;
+        if (delayMillis <= 0 || dispatcher.isShutdown()) {
+            // Saat shutdown job tetap di disk (tidak di-finish) dan dicoba lagi pada start berikutnya
+            pending.addFirst(job);
+            return;
+        }
+        dispatcher.schedule(() -> {
+            pending.addFirst(job);
+            pump();
+        }, delayMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private void finish(Job job, SkinManager.UploadResult result) {
+        job.result = result;
+        job.message = result.message();
+        job.status = result.success() ? Status.DONE : Status.FAILED;
+        job.finishedAt = System.currentTimeMillis();
+        job.png = null;
+        deletePersisted(job);
+        jobsFinished.inc(job.status.name().toLowerCase());
+        plugin.logDebug(() -> "MineSkin job " + job.id + " finished: " + job.status + " (" + job.message + ")");
+    }
+
+    private long backoff(int attempts) {
+        long exp = baseBackoffMillis << Math.min(10, Math.max(0, attempts - 1));
+        return exp + ThreadLocalRandom.current().nextLong(baseBackoffMillis);
+    }
+
+    private void applyRateLimitHeaders(HttpResponse<String> response) {
+        long remaining = headerLong(response, "X-RateLimit-Remaining", -1);
+        if (remaining == 0) {
+            long reset = headerLong(response, "X-RateLimit-Reset", -1);
+            if (reset > 0) {
+                // Nilai besar adalah epoch detik, nilai kecil adalah sisa detik
+                long resetAt = reset > 1_000_000_000L ? reset * 1000L : System.currentTimeMillis() + reset * 1000L;
+                blockedUntil = Math.max(blockedUntil, resetAt);
+            }
+        }
+        long retryAfter = retryAfterMillis(response);
+        if (retryAfter > 0) {
+            blockedUntil = Math.max(blockedUntil, System.currentTimeMillis() + retryAfter);
+        }
+    }
+
+    /** Retry-After bisa berupa jumlah detik atau HTTP-date (RFC 1123); 0 jika tidak ada atau tidak valid. */
+    private long retryAfterMillis(HttpResponse<String> response) {
+        String value = response.headers().firstValue("Retry-After").map(String::trim).orElse("");
+        if (value.isEmpty()) {
+            return 0;
+        }
+        long seconds = headerLong(response, "Retry-After", -1);
+        if (seconds >= 0) {
+            return seconds * 1000L;
+        }
+        try {
+            long retryAt = ZonedDateTime.parse(value, DateTimeFormatter.RFC_1123_DATE_TIME).toInstant().toEpochMilli();
+            return Math.max(0, retryAt - System.currentTimeMillis());
+        } catch (DateTimeParseException e) {
+            return 0;
+        }
+    }
+
+    private static long headerLong(HttpResponse<?> response, String name, long def) {
+        return response.headers().firstValue(name).map(v -> {
+            try {
+                return (long) Double.parseDouble(v.trim());
+            } catch (NumberFormatException e) {
+                return def;
+            }
+        }).orElse(def);
+    }
+
+    private void purgeFinished() {
+        long cutoff = System.currentTimeMillis() - FINISHED_RETENTION_MILLIS;
+        jobs.values().removeIf(job -> job.finishedAt > 0 && job.finishedAt < cutoff);
+    }
+
+    // ======== Persistensi job ========
+
+    // PNG ditulis dulu, lalu .json sebagai penanda job lengkap; keduanya atomik lewat SnapshotFile
+    private void persist(Job job) throws IOException {
+        if (!jobDir.isDirectory() && !jobDir.mkdirs()) {
+            throw new IOException("Could not create " + jobDir);
+        }
+        byte[] png = job.png;
+        SnapshotFile.write(new File(jobDir, job.id + ".png").toPath(), 0, false, out -> out.write(png));
+        PersistedJob saved = new PersistedJob(job.id, job.playerUuid, job.fileName, job.cacheKey, job.createdAt);
+        SnapshotFile.write(new File(jobDir, job.id + ".json").toPath(), 0, false, out -> {
+            Writer writer = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+            gson.toJson(saved, writer);
+            writer.flush();
+        });
+    }
+
+    private void deletePersisted(Job job) {
+        deletePersisted(job.id);
+    }
+
+    private void deletePersisted(String jobId) {
+        try {
+            Files.deleteIfExists(new File(jobDir, jobId + ".png").toPath());
+            Files.deleteIfExists(new File(jobDir, jobId + ".json").toPath());
+        } catch (IOException e) {
+            plugin.getLogger().warning("Could not delete persisted MineSkin job " + jobId + ": " + e.getMessage());
+        }
+    }
+
+    private void restorePersistedJobs() {
+        File[] files = jobDir.listFiles();
+        if (files == null || files.length == 0) {
+            return;
+        }
+        int restored = 0;
+        for (File file : files) {
+            String name = file.getName();
+            if (name.endsWith(".tmp")) {
+                file.delete(); // sisa tulisan yang terputus crash
+                continue;
+            }
+            if (name.endsWith(".png")) {
+                // PNG tanpa .json: crash sebelum job selesai disimpan, ID-nya tidak pernah dikirim ke pemain
+                if (!new File(jobDir, name.substring(0, name.length() - 4) + ".json").exists()) {
+                    file.delete();
+                }
+                continue;
+            }
+            if (!name.endsWith(".json")) {
+                continue;
+            }
+            String jobId = name.substring(0, name.length() - 5);
+            try (BufferedReader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+                PersistedJob saved = gson.fromJson(reader, PersistedJob.class);
+                File png = new File(jobDir, jobId + ".png");
+                if (saved == null || !jobId.equals(saved.id()) || saved.playerUuid() == null || !png.exists()) {
+                    plugin.getLogger().warning("Discarding incomplete MineSkin job " + jobId);
+                    deletePersisted(jobId);
+                    continue;
+                }
+                Job job = new Job(saved.id(), saved.playerUuid(), saved.fileName(), saved.cacheKey(),
+                        Files.readAllBytes(png.toPath()), saved.createdAt());
+                jobs.put(job.id, job);
+                pending.addLast(job);
+                restored++;
+            } catch (IOException | JsonParseException e) {
+                // Tidak pernah bisa dibaca; dibuang agar tidak dicoba (dan dilaporkan) di setiap start
+                plugin.getLogger().warning("Discarding unreadable MineSkin job " + name + ": " + e.getMessage());
+                deletePersisted(jobId);
+            }
+        }
+        if (restored > 0) {
+            plugin.getLogger().info("Resuming " + restored + " pending MineSkin upload job(s).");
+            pump();
+        }
+    }
+
+    private record PersistedJob(String id, UUID playerUuid, String fileName, String cacheKey, long createdAt) {}
+
+    /** Satu upload yang menunggu ditandatangani MineSkin. */
+    public static final class Job {
+        final String id;
+        final UUID playerUuid;
+        final String fileName;
+        final String cacheKey;
+        final long createdAt;
+        volatile byte[] png;
+        int attempts;
+        volatile Status status = Status.QUEUED;
+        volatile String message = "Waiting in upload queue...";
+        volatile SkinManager.UploadResult result;
+        volatile long finishedAt;
+
+        Job(String id, UUID playerUuid, String fileName, String cacheKey, byte[] png, long createdAt) {
+            this.id = id;
+            this.playerUuid = playerUuid;
+            this.fileName = fileName;
+            this.cacheKey = cacheKey;
+            this.png = png;
+            this.createdAt = createdAt;
+        }
+
+        public String id() { return id; }
+        public UUID playerUuid() { return playerUuid; }
+        public String fileName() { return fileName; }
+        public String cacheKey() { return cacheKey; }
+        public byte[] png() { return png; }
+        public Status status() { return status; }
+        public String message() { return message; }
+        public SkinManager.UploadResult result() { return result; }
+    }
+}
@@ -1,13 +1,33 @@
 package com.zeroends.skinhub;
 
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
 
 public class PinManager {
 
+    private static final long SWEEP_INTERVAL_MILLIS = 1000;
+    private static final int MAX_PIN_ATTEMPTS = 20;
+    // Interval membaca ulang daftar logout dari storage bersama (storage.type: sql)
+    private static final long REVOCATION_REFRESH_SECONDS = 5;
+
     private final SkinHub plugin;
+    private final Storage storage;
 
     // PIN storage dengan timestamp untuk expiry
     private final Map<UUID, PinEntry> pinMap;         // Maps player UUIDs to PIN entries
@@ -16,12 +36,32 @@ public class PinManager {
     // Session storage dengan expiry
     private final Map<String, SessionEntry> sessionMap; // Maps session tokens to session entries
 
+    // Bookkeeping expiry dan batas sesi; hanya diubah di dalam synchronized (this)
+    private final ExpiryWheel<UUID> pinExpiry;
+    private final ExpiryWheel<String> sessionExpiry;
+    private final Map<UUID, Deque<String>> sessionsByPlayer = new HashMap<>();
+    private final Set<String> sessionOrder = new LinkedHashSet<>(); // urutan pembuatan, untuk batas global
+    private final ScheduledExecutorService sweeper;
+
+    // Mode sesi signed: token HMAC diverifikasi tanpa lookup; hanya logout yang dicatat (revocation list)
+    private final SessionTokens sessionTokens; // null = mode memory
+    private final Map<Long, Long> revokedTokens = new ConcurrentHashMap<>(); // id token -> expiresAt
+    private final ExpiryWheel<Long> revocationExpiry;
+    private final File revocationFile;
+    // Menyalin logout dari server lain ke revokedTokens di background; null di mode memory
+    private final ScheduledExecutorService revocationRefresher;
+
     // TTL/Expiry (ms)
     private final long pinExpiryMillis;
     private final long sessionExpiryMillis;
 
-    public PinManager(SkinHub plugin) {
+    // Batas sesi hidup
+    private final int maxSessionsPerPlayer;
+    private final int maxSessions;
+
+    public PinManager(SkinHub plugin, Storage storage) {
         this.plugin = plugin;
+        this.storage = storage;
         this.pinMap = new ConcurrentHashMap<>();
         this.pinToUuidMap = new ConcurrentHashMap<>();
         this.sessionMap = new ConcurrentHashMap<>();
@@ -30,26 +70,106 @@ public class PinManager {
         int sessionExpiryDays = Math.max(1, plugin.getConfig().getInt("web.session-expiry-days", 30));
         this.pinExpiryMillis = pinExpirySeconds * 1000L;
         this.sessionExpiryMillis = sessionExpiryDays * 24L * 60L * 60L * 1000L;
+        this.maxSessionsPerPlayer = Math.max(1, plugin.getConfig().getInt("web.max-sessions-per-player", 5));
+        this.maxSessions = Math.max(1, plugin.getConfig().getInt("web.max-sessions", 10000));
+
+        long now = System.currentTimeMillis();
+        this.pinExpiry = new ExpiryWheel<>(SWEEP_INTERVAL_MILLIS, now);
+        this.sessionExpiry = new ExpiryWheel<>(SWEEP_INTERVAL_MILLIS, now);
+        this.revocationExpiry = new ExpiryWheel<>(SWEEP_INTERVAL_MILLIS, now);
+        this.revocationFile = new File(plugin.getDataFolder(), "revoked-sessions.txt");
+        this.sessionTokens = loadSessionTokens();
+        if (sessionTokens != null) {
+            loadRevocations(now);
+        }
+        Metrics metrics = plugin.getMetrics();
+        metrics.gauge("skinhub_pins_live", "Login PINs waiting to be used", this::getLivePins);
+        metrics.gauge("skinhub_sessions_live", "Dashboard sessions held in memory", this::getLiveSessions);
+        metrics.gauge("skinhub_sessions_revoked", "Revoked signed session tokens not yet expired", this::getRevokedSessions);
+        this.sweeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "SkinHub-Expiry");
+            t.setDaemon(true);
+            return t;
+        });
+        sweeper.scheduleAtFixedRate(this::sweep, SWEEP_INTERVAL_MILLIS, SWEEP_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+        if (sessionTokens != null) {
+            // Thread terpisah dari sweeper: query database yang lambat tidak menunda expiry
+            this.revocationRefresher = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "SkinHub-Revocations");
+                t.setDaemon(true);
+                return t;
+            });
+            revocationRefresher.scheduleWithFixedDelay(this::refreshSharedRevocations, 0, REVOCATION_REFRESH_SECONDS, TimeUnit.SECONDS);
+        } else {
+            this.revocationRefresher = null;
+        }
+    }
+
+    public void shutdown() {
+        sweeper.shutdownNow();
+        if (revocationRefresher != null) {
+            revocationRefresher.shutdownNow();
+        }
+        if (sessionTokens != null) {
+            saveRevocations();
+        }
+    }
+
+    private SessionTokens loadSessionTokens() {
+        String mode = plugin.getConfig().getString("web.session-mode", "memory");
+        if (!"signed".equalsIgnoreCase(mode)) {
+            return null;
+        }
+        File keyFile = new File(plugin.getDataFolder(), "session.key");
+        try {
+            SessionTokens tokens = SessionTokens.load(keyFile);
+            plugin.getLogger().info("Using signed session tokens (key: " + keyFile.getName() + ").");
+            return tokens;
+        } catch (IOException e) {
+            plugin.getLogger().log(Level.SEVERE, "Could not load " + keyFile.getName() + ", falling back to in-memory sessions", e);
+            return null;
+        }
     }
 
-    public String getOrCreatePin(UUID uuid) {
+    /** Membuang PIN dan sesi yang sudah expire; hanya menyentuh slot wheel yang jatuh tempo. */
+    private synchronized void sweep() {
+        long now = System.currentTimeMillis();
+        pinExpiry.advance(now, uuid -> {
+            PinEntry removed = pinMap.remove(uuid);
+            if (removed != null) {
+                pinToUuidMap.remove(removed.pin(), uuid);
+            }
+        });
+        sessionExpiry.advance(now, token -> {
+            SessionEntry removed = sessionMap.remove(token);
+            if (removed != null) {
+                forgetSession(token, removed);
+            }
+        });
+        // Token yang sudah expire ditolak lewat expiry-nya sendiri, jadi catatan revoke-nya boleh dibuang
+        revocationExpiry.advance(now, revokedTokens::remove);
+    }
+
+    public synchronized String getOrCreatePin(UUID uuid) {
         long now = System.currentTimeMillis();
         PinEntry entry = pinMap.get(uuid);
 
         if (entry != null) {
             if (!isPinExpired(entry, now)) {
-                plugin.logDebug("PIN ditemukan untuk " + uuid + ": " + entry.pin());
+                plugin.logDebug(() -> "PIN ditemukan untuk " + uuid + ": " + entry.pin());
                 return entry.pin();
             }
             // Expired -> remove old mapping
             removePin(uuid);
         }
 
-        String pin = generatePin();
-        PinEntry newEntry = new PinEntry(pin, now);
-        pinMap.put(uuid, newEntry);
-        pinToUuidMap.put(pin, uuid);
-        plugin.logDebug("Membuat PIN baru untuk " + uuid + ": " + pin);
+        String pin = generateUniquePin(uuid);
+        if (pin == null) {
+            throw new IllegalStateException("Could not allocate a unique PIN after " + MAX_PIN_ATTEMPTS + " attempts");
+        }
+        pinMap.put(uuid, new PinEntry(pin, now));
+        pinExpiry.schedule(uuid, now + pinExpiryMillis);
+        plugin.logDebug(() -> "Membuat PIN baru untuk " + uuid + ": " + pin);
         return pin;
     }
 
@@ -58,31 +178,34 @@ public class PinManager {
         PinEntry entry = pinMap.get(uuid);
 
         if (entry == null) {
-            plugin.logDebug("Validasi PIN " + pin + " untuk " + uuid + ": false (tidak ada PIN)");
+            plugin.logDebug(() -> "Validasi PIN " + pin + " untuk " + uuid + ": false (tidak ada PIN)");
             return false;
         }
         if (isPinExpired(entry, now)) {
-            plugin.logDebug("PIN untuk " + uuid + " sudah kadaluarsa, menghapus.");
+            plugin.logDebug(() -> "PIN untuk " + uuid + " sudah kadaluarsa, menghapus.");
             removePin(uuid);
             return false;
         }
         boolean valid = entry.pin().equals(pin);
-        plugin.logDebug("Validasi PIN " + pin + " untuk " + uuid + ": " + valid);
+        plugin.logDebug(() -> "Validasi PIN " + pin + " untuk " + uuid + ": " + valid);
         return valid;
     }
 
     public UUID getUuidByPin(String pin) {
-        UUID uuid = pinToUuidMap.get(pin);
-        // Catatan: reverse lookup ini tidak memeriksa expiry; gunakan validatePin untuk validasi penuh
-        plugin.logDebug("UUID untuk PIN " + pin + ": " + uuid);
-        return uuid;
+        UUID mapped = pinToUuidMap.get(pin);
+        PinEntry entry = mapped != null ? pinMap.get(mapped) : null;
+        // Mapping bisa tertinggal sebentar sampai sweeper berjalan; jangan pernah kembalikan PIN basi
+        UUID result = entry != null && entry.pin().equals(pin) && !isPinExpired(entry, System.currentTimeMillis()) ? mapped : null;
+        plugin.logDebug(() -> "UUID untuk PIN " + pin + ": " + result);
+        return result;
     }
 
-    public void removePin(UUID uuid) {
+    public synchronized void removePin(UUID uuid) {
         PinEntry removed = pinMap.remove(uuid);
+        pinExpiry.cancel(uuid);
         if (removed != null) {
-            pinToUuidMap.remove(removed.pin());
-            plugin.logDebug("Hapus PIN untuk " + uuid + ": " + removed.pin());
+            pinToUuidMap.remove(removed.pin(), uuid);
+            plugin.logDebug(() -> "Hapus PIN untuk " + uuid + ": " + removed.pin());
         }
     }
 
@@ -90,18 +213,54 @@ public class PinManager {
         return (now - entry.createdAtMillis()) > pinExpiryMillis;
     }
 
-    private String generatePin() {
-        // Generate random 6-digit PIN
-        int number = ThreadLocalRandom.current().nextInt(100000, 1000000); // 6 digits
-        return String.valueOf(number);
+    /** Membuat PIN 6 digit yang belum dipakai pemain lain dan langsung mendaftarkannya di reverse map. */
+    private String generateUniquePin(UUID uuid) {
+        for (int attempt = 0; attempt < MAX_PIN_ATTEMPTS; attempt++) {
+            String pin = String.valueOf(ThreadLocalRandom.current().nextInt(100000, 1000000)); // 6 digits
+            if (pinToUuidMap.putIfAbsent(pin, uuid) == null) {
+                return pin;
+            }
+        }
+        return null;
     }
 
     // === Session Management for Web (dengan expiry) ===
-    public void createSession(String sessionToken, UUID uuid, String username) {
+
+    /**
+     * Membuat sesi baru untuk pemain.
+     * @return token sesi untuk cookie (UUID acak di mode memory, token bertanda tangan di mode signed).
+     */
+    public synchronized String createSession(UUID uuid, String username) {
         long now = System.currentTimeMillis();
         long expiresAt = now + sessionExpiryMillis;
+
+        if (sessionTokens != null) {
+            String token = sessionTokens.issue(uuid, username, expiresAt);
+            plugin.logDebug(() -> "Create signed session for " + username + " (expiresAt=" + expiresAt + ")");
+            return token;
+        }
+        String sessionToken = UUID.randomUUID().toString();
+
+        // Batas per pemain: sesi paling lama milik pemain ini yang dibuang
+        Deque<String> playerSessions = sessionsByPlayer.computeIfAbsent(uuid, k -> new ArrayDeque<>());
+        while (playerSessions.size() >= maxSessionsPerPlayer) {
+            removeSessionLocked(playerSessions.peekFirst());
+        }
+        // Batas global: semua sesi punya TTL sama, jadi sesi tertua juga yang paling cepat expire
+        while (sessionMap.size() >= maxSessions) {
+            Iterator<String> oldest = sessionOrder.iterator();
+            if (!oldest.hasNext()) {
+                break;
+            }
+            removeSessionLocked(oldest.next());
+        }
+
         sessionMap.put(sessionToken, new SessionEntry(new UserInfo(uuid, username), expiresAt));
-        plugin.logDebug("Create session for " + username + " with token: " + sessionToken + " (expiresAt=" + expiresAt + ")");
+        sessionsByPlayer.computeIfAbsent(uuid, k -> new ArrayDeque<>()).addLast(sessionToken);
+        sessionOrder.add(sessionToken);
+        sessionExpiry.schedule(sessionToken, expiresAt);
+        plugin.logDebug(() -> "Create session for " + username + " with token: " + sessionToken + " (expiresAt=" + expiresAt + ")");
+        return sessionToken;
     }
 
     public UserInfo validateSession(String sessionToken) {
@@ -110,23 +269,159 @@ public class PinManager {
             return null;
         }
         long now = System.currentTimeMillis();
+        if (sessionTokens != null) {
+            return validateSignedSession(sessionToken, now);
+        }
         SessionEntry entry = sessionMap.get(sessionToken);
         if (entry == null) {
-            plugin.logDebug("Validasi session untuk token: " + sessionToken + " hasil: null");
+            plugin.logDebug(() -> "Validasi session untuk token: " + sessionToken + " hasil: null");
             return null;
         }
         if (now > entry.expiresAtMillis()) {
-            sessionMap.remove(sessionToken);
-            plugin.logDebug("Session expired untuk token: " + sessionToken + ", removing.");
+            removeSession(sessionToken);
+            plugin.logDebug(() -> "Session expired untuk token: " + sessionToken + ", removing.");
             return null;
         }
-        plugin.logDebug("Validasi session untuk token: " + sessionToken + " hasil: " + entry.userInfo().uuid());
+        plugin.logDebug(() -> "Validasi session untuk token: " + sessionToken + " hasil: " + entry.userInfo().uuid());
         return entry.userInfo();
     }
 
+    private UserInfo validateSignedSession(String sessionToken, long now) {
+        SessionTokens.Claims claims = sessionTokens.verify(sessionToken);
+        if (claims == null) {
+            plugin.logDebug("Signed session rejected: invalid signature");
+            return null;
+        }
+        // Hanya lookup memori: logout dari backend lain sudah disalin ke revokedTokens oleh refreshSharedRevocations
+        if (now > claims.expiresAtMillis() || revokedTokens.containsKey(claims.id())) {
+            plugin.logDebug(() -> "Signed session rejected for " + claims.username() + ": expired or revoked");
+            return null;
+        }
+        return new UserInfo(claims.uuid(), claims.username());
+    }
+
     public void removeSession(String sessionToken) {
-        SessionEntry info = sessionMap.remove(sessionToken);
-        plugin.logDebug("Session removed for token: " + sessionToken + " user: " + (info != null ? info.userInfo().username() : "null"));
+        if (sessionTokens != null) {
+            SessionTokens.Claims claims = sessionToken != null ? sessionTokens.verify(sessionToken) : null;
+            if (claims != null && claims.expiresAtMillis() > System.currentTimeMillis()) {
+                revokeLocally(claims.id(), claims.expiresAtMillis());
+                // Di luar lock: bisa menulis ke database
+                storage.revokeSession(claims.id(), claims.expiresAtMillis());
+                plugin.logDebug(() -> "Signed session revoked for " + claims.username());
+            }
+            return;
+        }
+        SessionEntry info;
+        synchronized (this) {
+            info = removeSessionLocked(sessionToken);
+        }
+        plugin.logDebug(() -> "Session removed for token: " + sessionToken + " user: " + (info != null ? info.userInfo().username() : "null"));
+    }
+
+    private synchronized void revokeLocally(long tokenId, long expiresAtMillis) {
+        if (revokedTokens.put(tokenId, expiresAtMillis) == null) {
+            revocationExpiry.schedule(tokenId, expiresAtMillis);
+        }
+    }
+
+    /**
+     * Menyalin logout yang dicatat server lain di storage bersama ke revocation list lokal,
+     * sehingga logout di satu backend ikut berlaku di backend lain dalam beberapa detik.
+     */
+    private void refreshSharedRevocations() {
+        try {
+            Map<Long, Long> shared = storage.loadRevokedSessions();
+            if (shared == null) {
+                return;
+            }
+            long now = System.currentTimeMillis();
+            shared.forEach((tokenId, expiresAt) -> {
+                if (expiresAt > now && !revokedTokens.containsKey(tokenId)) {
+                    revokeLocally(tokenId, expiresAt);
+                }
+            });
+        } catch (RuntimeException e) {
+            // Task berkala berhenti selamanya jika exception lolos
+            plugin.getLogger().log(Level.WARNING, "Could not refresh shared session logouts", e);
+        }
+    }
+
+    private SessionEntry removeSessionLocked(String sessionToken) {
+        if (sessionToken == null) {
+            return null;
+        }
+        SessionEntry removed = sessionMap.remove(sessionToken);
+        if (removed != null) {
+            sessionExpiry.cancel(sessionToken);
+            forgetSession(sessionToken, removed);
+        }
+        return removed;
+    }
+
+    private void forgetSession(String sessionToken, SessionEntry entry) {
+        sessionOrder.remove(sessionToken);
+        UUID uuid = entry.userInfo().uuid();
+        Deque<String> playerSessions = sessionsByPlayer.get(uuid);
+        if (playerSessions != null) {
+            // Deque per pemain dibatasi max-sessions-per-player, jadi remove di sini tetap O(1)
+            playerSessions.remove(sessionToken);
+            if (playerSessions.isEmpty()) {
+                sessionsByPlayer.remove(uuid);
+            }
+        }
+    }
+
+    // === Revocation list (mode signed) ===
+
+    private void loadRevocations(long now) {
+        if (!revocationFile.exists()) {
+            return;
+        }
+        try {
+            for (String line : Files.readAllLines(revocationFile.toPath(), StandardCharsets.UTF_8)) {
+                String[] parts = line.trim().split(" ");
+                if (parts.length != 2) {
+                    continue;
+                }
+                try {
+                    long id = Long.parseLong(parts[0]);
+                    long expiresAt = Long.parseLong(parts[1]);
+                    if (expiresAt > now) {
+                        revokedTokens.put(id, expiresAt);
+                        revocationExpiry.schedule(id, expiresAt);
+                    }
+                } catch (NumberFormatException ignored) { }
+            }
+            plugin.logDebug(() -> "Loaded " + revokedTokens.size() + " revoked session token(s).");
+        } catch (IOException e) {
+            plugin.getLogger().warning("Could not read " + revocationFile.getName() + ": " + e.getMessage());
+        }
+    }
+
+    private void saveRevocations() {
+        StringBuilder lines = new StringBuilder();
+        revokedTokens.forEach((id, expiresAt) -> lines.append(id).append(' ').append(expiresAt).append('\n'));
+        byte[] bytes = lines.toString().getBytes(StandardCharsets.UTF_8);
+        try {
+            SnapshotFile.write(revocationFile.toPath(), 0, false, out -> out.write(bytes));
+        } catch (IOException e) {
+            plugin.getLogger().warning("Could not save " + revocationFile.getName() + ": " + e.getMessage());
+        }
+    }
+
+    // === Gauges ===
+
+    public int getLivePins() {
+        return pinMap.size();
+    }
+
+    /** Jumlah sesi di memori (mode memory); di mode signed sesi tidak disimpan sehingga selalu 0. */
+    public int getLiveSessions() {
+        return sessionMap.size();
+    }
+
+    public int getRevokedSessions() {
+        return revokedTokens.size();
     }
 
     // === Records ===
@@ -3,52 +3,90 @@ package com.zeroends.skinhub;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
 
-public class PlayerData {
+/**
+ * Snapshot immutable koleksi skin satu pemain.
+ * Perubahan menghasilkan instance baru yang dipasang lewat {@link Storage#update} (compare-and-swap),
+ * sehingga dashboard dan thread penyimpan selalu membaca keadaan yang konsisten tanpa lock.
+ */
+public final class PlayerData {
 
-    // Daftar skin yang disimpan oleh pemain
+    // Counter global: setiap instance mendapat nomor baru, sehingga versi tidak pernah terulang
+    // walau data pemain dimuat ulang setelah di-evict dari cache
+    private static final AtomicLong VERSIONS = new AtomicLong();
+
+    // Daftar skin yang disimpan oleh pemain (tidak bisa diubah)
     private final List<SkinInfo> skinSlots;
 
     // Skin aktif yang sedang dipakai (persisten antar login)
-    private Long activeSkinId; // null jika tidak ada skin aktif
+    private final Long activeSkinId; // null jika tidak ada skin aktif
+
+    // Index texture untuk cek duplikasi O(1); tidak disimpan, dibangun dari skinSlots saat dibutuhkan.
+    // Set immutable, jadi aman walau dibangun bersamaan oleh beberapa thread
+    private transient Set<String> textureIndex;
 
+    // Versi data untuk ETag dashboard; unik per snapshot, tidak disimpan ke disk
+    private final transient long version = VERSIONS.incrementAndGet();
+
+    // Dipakai Gson; daftar dari JSON dinormalisasi lewat TextureStore.acquireAll saat dimuat
     public PlayerData() {
-        this.skinSlots = new ArrayList<>();
-        this.activeSkinId = null;
+        this(List.of(), null);
+    }
+
+    public PlayerData(List<SkinInfo> skinSlots, Long activeSkinId) {
+        this.skinSlots = List.copyOf(skinSlots);
+        this.activeSkinId = activeSkinId;
     }
 
     /**
      * Menambahkan skin baru ke koleksi pemain.
      * @param skinInfo Info skin yang akan ditambahkan.
      * @param maxSkins Batas maksimum skin.
-     * @return true jika berhasil ditambahkan, false jika slot penuh atau skin sudah ada.
+     * @return snapshot baru, atau instance ini jika slot penuh atau skin sudah ada.
      */
-    public boolean addSkin(SkinInfo skinInfo, int maxSkins) {
-        if (skinSlots.size() >= maxSkins) {
-            return false;
-        }
-        // Hindari duplikasi berdasarkan texture
-        for (SkinInfo existing : skinSlots) {
-            if (existing.texture().equals(skinInfo.texture())) {
-                return false; // Skin sudah ada
-            }
+    public PlayerData withSkin(SkinInfo skinInfo, int maxSkins) {
+        if (skinSlots.size() >= maxSkins || hasTexture(skinInfo.texture())) {
+            return this;
         }
-        skinSlots.add(skinInfo);
-        return true;
+        List<SkinInfo> skins = new ArrayList<>(skinSlots.size() + 1);
+        skins.addAll(skinSlots);
+        skins.add(skinInfo);
+        return new PlayerData(skins, activeSkinId);
     }
 
     /**
-     * Menghapus skin dari koleksi berdasarkan ID (timestamp).
+     * Mengecek apakah pemain sudah punya skin dengan texture ini.
+     * @param texture Texture value.
+     * @return true jika sudah ada di koleksi.
+     */
+    public boolean hasTexture(String texture) {
+        return texture != null && textureIndex().contains(texture);
+    }
+
+    /**
+     * Menghapus skin dari koleksi berdasarkan ID (timestamp); skin aktif ikut dilepas jika itu yang dihapus.
      * @param skinId ID unik (timestamp) dari skin yang akan dihapus.
-     * @return true jika berhasil dihapus, false jika tidak ditemukan.
+     * @return snapshot baru, atau instance ini jika skin tidak ditemukan.
      */
-    public boolean removeSkin(long skinId) {
-        return skinSlots.removeIf(skin -> skin.id() == skinId);
+    public PlayerData withoutSkin(long skinId) {
+        if (getSkinById(skinId) == null) {
+            return this;
+        }
+        List<SkinInfo> skins = new ArrayList<>(skinSlots.size());
+        for (SkinInfo skin : skinSlots) {
+            if (skin.id() != skinId) {
+                skins.add(skin);
+            }
+        }
+        Long active = activeSkinId != null && activeSkinId == skinId ? null : activeSkinId;
+        return new PlayerData(skins, active);
     }
 
     /**
      * Mendapatkan daftar skin yang dimiliki pemain.
-     * @return Daftar SkinInfo.
+     * @return Daftar SkinInfo (tidak bisa diubah).
      */
     public List<SkinInfo> getSkinSlots() {
         return skinSlots;
@@ -68,14 +106,50 @@ public class PlayerData {
         return null;
     }
 
+    /** true jika pemain tidak punya skin dan tidak punya skin aktif. */
+    public boolean isEmpty() {
+        return skinSlots.isEmpty() && activeSkinId == null;
+    }
+
+    private Set<String> textureIndex() {
+        Set<String> index = textureIndex;
+        if (index == null) {
+            List<String> textures = new ArrayList<>(skinSlots.size());
+            for (SkinInfo skin : skinSlots) {
+                if (skin.texture() != null) {
+                    textures.add(skin.texture());
+                }
+            }
+            index = Set.copyOf(textures);
+            textureIndex = index;
+        }
+        return index;
+    }
+
     // ========= Active skin persistence =========
 
     public Long getActiveSkinId() {
         return activeSkinId;
     }
 
-    public void setActiveSkinId(Long activeSkinId) {
-        this.activeSkinId = activeSkinId;
+    /** @return snapshot baru dengan skin aktif ini, atau instance ini jika tidak berubah. */
+    public PlayerData withActiveSkinId(Long activeSkinId) {
+        if (Objects.equals(this.activeSkinId, activeSkinId)) {
+            return this;
+        }
+        return new PlayerData(skinSlots, activeSkinId);
+    }
+
+    /** @return snapshot baru dengan daftar skin ini (mis. setelah texture dikanonkan), skin aktif tetap. */
+    public PlayerData withSkinSlots(List<SkinInfo> skinSlots) {
+        return new PlayerData(skinSlots, activeSkinId);
+    }
+
+    // ========= Versioning =========
+
+    /** Versi data saat ini; setiap snapshot (setiap perubahan) punya versi sendiri. */
+    public long getVersion() {
+        return version;
     }
 
     /**
@@ -1,18 +1,79 @@
 package com.zeroends.skinhub;
 
+import org.bukkit.Bukkit;
+import org.bukkit.entity.Player;
 import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
 import org.bukkit.event.Listener;
+import org.bukkit.event.player.AsyncPlayerPreLoginEvent;
 import org.bukkit.event.player.PlayerJoinEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 public class PlayerJoinListener implements Listener {
+    // Batas tunggu pre-login selagi data skin masih dimuat saat server baru start
+    private static final long LOGIN_LOAD_WAIT_SECONDS = 10;
+
+    private final SkinHub plugin;
     private final SkinManager skinManager;
+    private final Storage storage;
+    private final CompletableFuture<Boolean> dataReady;
 
-    public PlayerJoinListener(SkinManager skinManager) {
+    public PlayerJoinListener(SkinHub plugin, SkinManager skinManager, Storage storage, CompletableFuture<Boolean> dataReady) {
+        this.plugin = plugin;
         this.skinManager = skinManager;
+        this.storage = storage;
+        this.dataReady = dataReady;
+    }
+
+    // Muat data pemain dan siapkan skin aktif (termasuk tulis ke SkinsRestorer) di thread async sebelum join,
+    // sehingga main thread saat join hanya me-refresh skin di memori
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPreLogin(AsyncPlayerPreLoginEvent event) {
+        if (event.getLoginResult() == AsyncPlayerPreLoginEvent.Result.ALLOWED && awaitData()) {
+            storage.preload(event.getUniqueId());
+            skinManager.prepareActiveSkin(event.getUniqueId(), event.getName());
+        }
     }
 
     @EventHandler
     public void onJoin(PlayerJoinEvent event) {
-        skinManager.applyActiveSkinIfAny(event.getPlayer().getUniqueId());
+        Player player = event.getPlayer();
+        storage.setOnline(player.getUniqueId(), true);
+        if (Boolean.TRUE.equals(dataReady.getNow(false))) {
+            skinManager.applyPreparedSkin(player);
+            return;
+        }
+        // Data belum siap: skin diterapkan di main thread begitu load selesai
+        dataReady.thenAccept(loaded -> {
+            if (loaded) {
+                Bukkit.getScheduler().runTask(plugin, () -> {
+                    if (player.isOnline()) {
+                        skinManager.applyPreparedSkin(player);
+                    }
+                });
+            }
+        });
+    }
+
+    @EventHandler
+    public void onQuit(PlayerQuitEvent event) {
+        storage.setOnline(event.getPlayer().getUniqueId(), false);
+    }
+
+    // Pre-login berjalan async, jadi menunggu di sini tidak menahan tick server
+    private boolean awaitData() {
+        try {
+            return dataReady.get(LOGIN_LOAD_WAIT_SECONDS, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (ExecutionException | TimeoutException e) {
+            return false;
+        }
     }
 }
@@ -0,0 +1,70 @@
+package com.zeroends.skinhub;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.CRC32;
+
+/**
+ * Validator PNG yang hanya membaca signature dan chunk IHDR langsung dari byte array.
+ * Dipakai sebelum decode penuh, sehingga file yang bukan PNG atau berdimensi besar
+ * (decompression bomb) ditolak tanpa alokasi piksel sama sekali.
+ */
+public record PngHeader(int width, int height, int bitDepth, int colorType, int interlace) {
+
+    private static final byte[] SIGNATURE = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n'};
+    private static final int IHDR_LENGTH = 13;
+    // signature (8) + panjang chunk (4) + tipe (4) + data IHDR (13) + CRC (4)
+    private static final int MIN_SIZE = SIGNATURE.length + 8 + IHDR_LENGTH + 4;
+
+    /**
+     * Membaca header PNG.
+     * @return header yang valid, atau null jika data bukan PNG yang valid.
+     */
+    public static PngHeader parse(byte[] data) {
+        if (data == null || data.length < MIN_SIZE) {
+            return null;
+        }
+        for (int i = 0; i < SIGNATURE.length; i++) {
+            if (data[i] != SIGNATURE[i]) {
+                return null;
+            }
+        }
+        ByteBuffer buf = ByteBuffer.wrap(data, SIGNATURE.length, MIN_SIZE - SIGNATURE.length);
+        int length = buf.getInt();
+        byte[] type = new byte[4];
+        buf.get(type);
+        // IHDR wajib menjadi chunk pertama
+        if (length != IHDR_LENGTH || !"IHDR".equals(new String(type, StandardCharsets.US_ASCII))) {
+            return null;
+        }
+        int width = buf.getInt();
+        int height = buf.getInt();
+        int bitDepth = buf.get() & 0xFF;
+        int colorType = buf.get() & 0xFF;
+        int compression = buf.get() & 0xFF;
+        int filter = buf.get() & 0xFF;
+        int interlace = buf.get() & 0xFF;
+        int storedCrc = buf.getInt();
+
+        CRC32 crc = new CRC32();
+        crc.update(data, SIGNATURE.length + 4, 4 + IHDR_LENGTH);
+        if ((int) crc.getValue() != storedCrc) {
+            return null;
+        }
+        if (width <= 0 || height <= 0 || compression != 0 || filter != 0 || interlace > 1
+                || !isValidDepth(colorType, bitDepth)) {
+            return null;
+        }
+        return new PngHeader(width, height, bitDepth, colorType, interlace);
+    }
+
+    /** Kombinasi color type / bit depth yang diizinkan spesifikasi PNG. */
+    private static boolean isValidDepth(int colorType, int bitDepth) {
+        return switch (colorType) {
+            case 0 -> bitDepth == 1 || bitDepth == 2 || bitDepth == 4 || bitDepth == 8 || bitDepth == 16; // grayscale
+            case 3 -> bitDepth == 1 || bitDepth == 2 || bitDepth == 4 || bitDepth == 8;                   // palette
+            case 2, 4, 6 -> bitDepth == 8 || bitDepth == 16;                                             // RGB, gray+alpha, RGBA
+            default -> false;
+        };
+    }
+}
@@ -0,0 +1,146 @@
+package com.zeroends.skinhub;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+
+/**
+ * Penjadwal penyimpanan dengan satu thread penulis.
+ * Setiap permintaan save menaikkan generation counter; penulis hanya menulis sekali
+ * untuk seluruh permintaan yang masuk dalam jendela latensi (save-delay-ms).
+ */
+public class SaveScheduler {
+
+    private final SkinHub plugin;
+    private final Storage storage;
+    private final ScheduledExecutorService writer;
+    private final long delayMillis;
+
+    private final AtomicLong requestedGeneration = new AtomicLong();
+    private volatile long writtenGeneration;
+    private final AtomicBoolean flushScheduled = new AtomicBoolean(false);
+
+    // Tugas persistensi lain yang ikut berjalan di thread penulis saat autosave
+    private final List<Runnable> autosaveHooks = new CopyOnWriteArrayList<>();
+
+    // Statistik untuk melihat I/O yang dihemat
+    private final AtomicLong saveRequests = new AtomicLong();
+    private final AtomicLong savesWritten = new AtomicLong();
+
+    public SaveScheduler(SkinHub plugin, Storage storage) {
+        this.plugin = plugin;
+        this.storage = storage;
+        this.delayMillis = Math.max(0, plugin.getConfig().getLong("storage.save-delay-ms", 2000));
+        this.writer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "SkinHub-Saver");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * Menjadwalkan autosave berkala di thread penulis (menggantikan timer Bukkit terpisah).
+     * Autosave hanya menulis jika masih ada permintaan yang belum tersimpan,
+     * lalu memangkas cache pemain (layout sharded).
+     */
+    public void startAutosave(long intervalMinutes) {
+        writer.scheduleAtFixedRate(() -> {
+            try {
+                flush();
+                storage.trimCache();
+                autosaveHooks.forEach(Runnable::run);
+            } catch (RuntimeException e) {
+                plugin.getLogger().log(Level.WARNING, "Autosave failed", e);
+            }
+        }, intervalMinutes, intervalMinutes, TimeUnit.MINUTES);
+    }
+
+    /** Mendaftarkan tugas yang dijalankan setiap autosave di thread penulis. */
+    public void addAutosaveHook(Runnable hook) {
+        autosaveHooks.add(hook);
+    }
+
+    /** Menandai pemain berubah dan meminta save. */
+    public void requestSave(UUID playerUuid) {
+        storage.markDirty(playerUuid);
+        requestSave();
+    }
+
+    /** Meminta save; permintaan beruntun digabung menjadi satu penulisan. */
+    public void requestSave() {
+        requestedGeneration.incrementAndGet();
+        saveRequests.incrementAndGet();
+        if (flushScheduled.compareAndSet(false, true)) {
+            try {
+                writer.schedule(this::flush, delayMillis, TimeUnit.MILLISECONDS);
+            } catch (RejectedExecutionException e) {
+                flushScheduled.set(false);
+            }
+        }
+    }
+
+    /**
+     * Menghentikan thread penulis setelah menjalankan flush terakhir secara berurutan.
+     * Dipanggil dari onDisable.
+     */
+    public void shutdown() {
+        try {
+            writer.submit(this::flush).get(30, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException | TimeoutException | RejectedExecutionException e) {
+            plugin.getLogger().log(Level.WARNING, "Final save on writer thread failed; saving on caller thread.", e);
+            storage.saveData();
+        } finally {
+            writer.shutdownNow();
+        }
+        plugin.logDebug(() -> "Save scheduler stopped: " + saveRequests.get() + " request(s), "
+                + savesWritten.get() + " write(s), " + getCoalescedSaves() + " coalesced.");
+    }
+
+    /** Menghentikan thread penulis tanpa save terakhir (dipakai jika data skin tidak pernah selesai dimuat). */
+    public void stop() {
+        writer.shutdownNow();
+    }
+
+    private void flush() {
+        // Reset sebelum menulis agar permintaan yang datang selama save menjadwalkan flush berikutnya
+        flushScheduled.set(false);
+        long generation = requestedGeneration.get();
+        if (generation == writtenGeneration) {
+            return;
+        }
+        if (storage.saveData()) {
+            writtenGeneration = generation;
+            savesWritten.incrementAndGet();
+        } else {
+            plugin.getLogger().warning("Failed to save skin data; retrying in " + Math.max(1000, delayMillis) + " ms.");
+            if (flushScheduled.compareAndSet(false, true)) {
+                writer.schedule(this::flush, Math.max(1000, delayMillis), TimeUnit.MILLISECONDS);
+            }
+            return;
+        }
+        if (storage.needsCompaction()) {
+            if (!storage.compact()) {
+                plugin.getLogger().warning("Journal compaction failed; will retry on next save.");
+            }
+        }
+    }
+
+    public long getSaveRequests() { return saveRequests.get(); }
+    public long getSavesWritten() { return savesWritten.get(); }
+
+    /** Jumlah permintaan save yang tidak memerlukan penulisan sendiri. */
+    public long getCoalescedSaves() {
+        return Math.max(0, saveRequests.get() - savesWritten.get());
+    }
+}
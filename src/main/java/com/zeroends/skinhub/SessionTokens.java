@@ -0,0 +1,136 @@
+package com.zeroends.skinhub;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.BufferUnderflowException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.UUID;
+
+/**
+ * Token sesi stateless yang ditandatangani HMAC-SHA256.
+ *
+ * <pre>
+ * token   : base64url(payload) "." base64url(hmac(payload))
+ * payload : u8 versi | i64 id token | i64 uuidMsb | i64 uuidLsb | i64 expiresAt (ms) | UTF-8 username
+ * </pre>
+ *
+ * Semua backend yang memakai file session.key yang sama bisa memverifikasi token tanpa lookup apa pun.
+ */
+public class SessionTokens {
+
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 1 + 8 + 16 + 8;
+    private static final int MAX_USERNAME_BYTES = 64;
+    private static final int KEY_BYTES = 32;
+    private static final String ALGORITHM = "HmacSHA256";
+
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+    private final SecretKeySpec key;
+    private final SecureRandom random = new SecureRandom();
+    // Mac tidak thread-safe; satu instance per thread (termasuk virtual thread web)
+    private final ThreadLocal<Mac> macs;
+
+    private SessionTokens(byte[] keyBytes) {
+        this.key = new SecretKeySpec(keyBytes, ALGORITHM);
+        this.macs = ThreadLocal.withInitial(() -> {
+            try {
+                Mac mac = Mac.getInstance(ALGORITHM);
+                mac.init(key);
+                return mac;
+            } catch (GeneralSecurityException e) {
+                throw new IllegalStateException(ALGORITHM + " not available", e);
+            }
+        });
+    }
+
+    /**
+     * Memuat key dari file, atau membuat key acak baru jika file belum ada.
+     * @return SessionTokens yang siap dipakai.
+     */
+    public static SessionTokens load(File keyFile) throws IOException {
+        byte[] keyBytes;
+        if (keyFile.exists()) {
+            try {
+                keyBytes = Base64.getDecoder().decode(Files.readString(keyFile.toPath(), StandardCharsets.US_ASCII).trim());
+            } catch (IllegalArgumentException e) {
+                throw new IOException(keyFile.getName() + " is not valid base64", e);
+            }
+            if (keyBytes.length < KEY_BYTES) {
+                throw new IOException(keyFile.getName() + " must contain at least " + KEY_BYTES + " bytes");
+            }
+        } else {
+            keyBytes = new byte[KEY_BYTES];
+            new SecureRandom().nextBytes(keyBytes);
+            byte[] encoded = (Base64.getEncoder().encodeToString(keyBytes) + "\n").getBytes(StandardCharsets.US_ASCII);
+            // Ditulis atomik: crash di tengah tidak meninggalkan key setengah jadi yang membuat semua token invalid
+            SnapshotFile.write(keyFile.toPath(), 0, false, out -> out.write(encoded));
+            try {
+                Files.setPosixFilePermissions(keyFile.toPath(), PosixFilePermissions.fromString("rw-------"));
+            } catch (UnsupportedOperationException ignored) {
+                // Windows: izin file mengikuti folder data
+            }
+        }
+        return new SessionTokens(keyBytes);
+    }
+
+    /** Membuat token baru untuk pemain ini. */
+    public String issue(UUID uuid, String username, long expiresAtMillis) {
+        byte[] name = username.getBytes(StandardCharsets.UTF_8);
+        if (name.length > MAX_USERNAME_BYTES) {
+            name = Arrays.copyOf(name, MAX_USERNAME_BYTES);
+        }
+        ByteBuffer payload = ByteBuffer.allocate(HEADER_SIZE + name.length);
+        payload.put((byte) VERSION);
+        payload.putLong(random.nextLong());
+        payload.putLong(uuid.getMostSignificantBits());
+        payload.putLong(uuid.getLeastSignificantBits());
+        payload.putLong(expiresAtMillis);
+        payload.put(name);
+        byte[] bytes = payload.array();
+        return ENCODER.encodeToString(bytes) + "." + ENCODER.encodeToString(macs.get().doFinal(bytes));
+    }
+
+    /**
+     * Memverifikasi tanda tangan token dan membaca isinya. Expiry tidak dicek di sini.
+     * @return claims token, atau null jika token rusak atau tanda tangannya tidak cocok.
+     */
+    public Claims verify(String token) {
+        int dot = token.indexOf('.');
+        if (dot <= 0 || dot != token.lastIndexOf('.')) {
+            return null;
+        }
+        try {
+            byte[] payload = DECODER.decode(token.substring(0, dot));
+            byte[] signature = DECODER.decode(token.substring(dot + 1));
+            // Perbandingan waktu-konstan agar tanda tangan tidak bisa ditebak byte per byte
+            if (!MessageDigest.isEqual(signature, macs.get().doFinal(payload))) {
+                return null;
+            }
+            ByteBuffer buf = ByteBuffer.wrap(payload);
+            if (buf.get() != VERSION) {
+                return null;
+            }
+            long id = buf.getLong();
+            UUID uuid = new UUID(buf.getLong(), buf.getLong());
+            long expiresAt = buf.getLong();
+            String username = new String(payload, HEADER_SIZE, payload.length - HEADER_SIZE, StandardCharsets.UTF_8);
+            return new Claims(id, uuid, username, expiresAt);
+        } catch (IllegalArgumentException | BufferUnderflowException e) {
+            return null;
+        }
+    }
+
+    public record Claims(long id, UUID uuid, String username, long expiresAtMillis) {}
+}
@@ -0,0 +1,72 @@
+package com.zeroends.skinhub;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.UUID;
+
+/**
+ * Layout on-disk per pemain: players/&lt;2 hex pertama UUID&gt;/&lt;uuid&gt;.json.
+ * Setiap file hanya berisi PlayerData satu pemain sehingga bisa dimuat dan ditulis secara terpisah.
+ */
+public class ShardedPlayerStore {
+
+    private final File rootDir;
+    private final Gson gson;
+
+    public ShardedPlayerStore(File rootDir, Gson gson) {
+        this.rootDir = rootDir;
+        this.gson = gson;
+    }
+
+    /**
+     * Memuat data satu pemain dari shard-nya.
+     * @return PlayerData, atau null jika pemain belum punya file.
+     */
+    public PlayerData load(UUID uuid) throws IOException {
+        Path path = fileFor(uuid).toPath();
+        if (!Files.exists(path)) {
+            return null;
+        }
+        try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            return gson.fromJson(reader, PlayerData.class);
+        } catch (JsonParseException e) {
+            throw new IOException("Malformed shard " + path.getFileName() + ": " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Menulis data satu pemain lewat SnapshotFile (file sementara + fsync + rename) agar shard tidak pernah setengah tertulis.
+     * @return ukuran shard yang ditulis (byte).
+     */
+    public long save(UUID uuid, PlayerData data) throws IOException {
+        File target = fileFor(uuid);
+        File dir = target.getParentFile();
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("Could not create shard directory " + dir);
+        }
+        return SnapshotFile.write(target.toPath(), 0, false, out -> {
+            Writer writer = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+            gson.toJson(data, PlayerData.class, writer);
+            writer.flush();
+        });
+    }
+
+    /** Menghapus shard pemain (dipakai jika data pemain kosong). */
+    public void delete(UUID uuid) throws IOException {
+        Files.deleteIfExists(fileFor(uuid).toPath());
+    }
+
+    private File fileFor(UUID uuid) {
+        String id = uuid.toString();
+        return new File(new File(rootDir, id.substring(0, 2)), id + ".json");
+    }
+}
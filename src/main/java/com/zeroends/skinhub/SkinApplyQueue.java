@@ -0,0 +1,151 @@
+package com.zeroends.skinhub;
+
+import net.skinsrestorer.api.SkinsRestorer;
+import net.skinsrestorer.api.property.SkinProperty;
+import org.bukkit.Bukkit;
+import org.bukkit.entity.Player;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.logging.Level;
+
+/**
+ * Antrian apply skin di main thread dengan budget per tick.
+ * Setiap apply membuat semua pemain yang melihat menerima ulang player info dan respawn,
+ * jadi klik dashboard atau join yang datang bersamaan disebar ke beberapa tick.
+ * Apply beruntun untuk pemain yang masih menunggu digabung menjadi apply terakhir.
+ */
+public class SkinApplyQueue {
+
+    private final SkinHub plugin;
+    private final SkinsRestorer skinsRestorerApi;
+    private final int appliesPerTick;
+
+    // Urutan FIFO per pemain; hanya diubah di dalam synchronized (this)
+    private final Map<UUID, Pending> pending = new LinkedHashMap<>();
+    // Task drain hanya berjalan selama antrian tidak kosong
+    private BukkitTask drainTask;
+    private boolean stopped;
+
+    private final Metrics.Counter outcomes;
+
+    public SkinApplyQueue(SkinHub plugin, SkinsRestorer skinsRestorerApi) {
+        this.plugin = plugin;
+        this.skinsRestorerApi = skinsRestorerApi;
+        this.appliesPerTick = Math.max(1, plugin.getConfig().getInt("skin-management.applies-per-tick", 4));
+        this.outcomes = plugin.getMetrics().counter("skinhub_apply_queue_total",
+                "Skin applies handled by the main-thread queue, by outcome (applied, collapsed, offline, failed).", "outcome");
+        plugin.getMetrics().gauge("skinhub_apply_queue_pending",
+                "Players waiting in the main-thread skin apply queue.", this::size);
+    }
+
+    /**
+     * Menjadwalkan apply skin di main thread; aman dipanggil dari thread mana pun.
+     * Jika pemain sudah menunggu di antrian, property-nya diganti dan posisinya tetap;
+     * future lama ikut selesai (berurutan) bersama apply yang baru.
+     *
+     * @return future yang selesai setelah skin diterapkan (false jika apply gagal atau antrian berhenti).
+     */
+    public CompletableFuture<Boolean> submit(UUID playerUuid, SkinProperty skinProperty) {
+        CompletableFuture<Boolean> future = new CompletableFuture<>();
+        Pending superseded;
+        synchronized (this) {
+            if (stopped) {
+                future.complete(false);
+                return future;
+            }
+            superseded = pending.get(playerUuid);
+            if (superseded != null) {
+                superseded.property = skinProperty;
+                superseded.waiters.add(future);
+            } else {
+                Pending entry = new Pending(skinProperty);
+                entry.waiters.add(future);
+                pending.put(playerUuid, entry);
+            }
+            if (drainTask == null) {
+                drainTask = Bukkit.getScheduler().runTaskTimer(plugin, this::drain, 1L, 1L);
+            }
+        }
+        if (superseded != null) {
+            outcomes.inc("collapsed");
+        }
+        return future;
+    }
+
+    /** Jumlah pemain yang menunggu di antrian. */
+    public synchronized int size() {
+        return pending.size();
+    }
+
+    /** Menghentikan antrian; apply yang belum berjalan diselesaikan dengan false. Dipanggil dari onDisable. */
+    public void shutdown() {
+        List<Pending> dropped;
+        synchronized (this) {
+            stopped = true;
+            if (drainTask != null) {
+                drainTask.cancel();
+                drainTask = null;
+            }
+            dropped = new ArrayList<>(pending.values());
+            pending.clear();
+        }
+        dropped.forEach(entry -> entry.complete(false));
+    }
+
+    // Berjalan setiap tick di main thread selama antrian tidak kosong
+    private void drain() {
+        Map<UUID, Pending> batch = new LinkedHashMap<>();
+        synchronized (this) {
+            Iterator<Map.Entry<UUID, Pending>> it = pending.entrySet().iterator();
+            while (it.hasNext() && batch.size() < appliesPerTick) {
+                Map.Entry<UUID, Pending> next = it.next();
+                batch.put(next.getKey(), next.getValue());
+                it.remove();
+            }
+            if (pending.isEmpty() && drainTask != null) {
+                drainTask.cancel();
+                drainTask = null;
+            }
+        }
+        batch.forEach(this::apply);
+    }
+
+    private void apply(UUID playerUuid, Pending entry) {
+        Player player = Bukkit.getPlayer(playerUuid);
+        if (player == null || !player.isOnline()) {
+            // Storage SkinsRestorer sudah ditulis; skin terpasang saat pemain join lagi
+            outcomes.inc("offline");
+            entry.complete(true);
+            return;
+        }
+        try {
+            skinsRestorerApi.getSkinApplier(Player.class).applySkin(player, entry.property);
+            outcomes.inc("applied");
+            entry.complete(true);
+        } catch (RuntimeException e) {
+            plugin.getLogger().log(Level.WARNING, "Failed to apply skin to " + player.getName(), e);
+            outcomes.inc("failed");
+            entry.complete(false);
+        }
+    }
+
+    private static final class Pending {
+        SkinProperty property;
+        final List<CompletableFuture<Boolean>> waiters = new ArrayList<>(1);
+
+        Pending(SkinProperty property) {
+            this.property = property;
+        }
+
+        void complete(boolean success) {
+            waiters.forEach(waiter -> waiter.complete(success));
+        }
+    }
+}
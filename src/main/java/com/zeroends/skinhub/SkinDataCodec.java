@@ -0,0 +1,390 @@
+package com.zeroends.skinhub;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+
+import java.io.BufferedWriter;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedByInterruptException;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Format biner berversi untuk data skin (skins.dat).
+ *
+ * <pre>
+ * "SKHB" | u8 versi | [v2: varint jumlahTexture | per texture: blob texture | blob signature] | varint jumlahPemain
+ * per pemain : i64 uuidMsb | i64 uuidLsb | u8 flags | [varlong activeSkinId] | varint jumlahSkin
+ * per skin   : varlong id | string nama | v1: blob texture | blob signature, v2: varint indexTexture
+ * string     : varint panjang | UTF-8
+ * blob       : u8 encoding (0 = UTF-8 apa adanya, 1 = byte mentah hasil decode base64) | varint panjang | byte
+ * </pre>
+ *
+ * Versi 2 menyimpan setiap pasangan texture/signature unik sekali saja di tabel texture,
+ * sehingga ukuran file mengikuti jumlah skin unik, bukan jumlah upload.
+ *
+ * Texture dan signature disimpan sebagai byte mentah jika base64-nya kanonis, sehingga tidak ada overhead
+ * base64 maupun escaping JSON. Jika encode ulang tidak identik, string disimpan apa adanya agar round-trip tetap exact.
+ */
+public class SkinDataCodec {
+
+    private static final byte[] MAGIC = {'S', 'K', 'H', 'B'};
+    public static final int VERSION = 2;
+
+    private static final int FLAG_ACTIVE_SKIN = 1;
+    private static final int BLOB_UTF8 = 0;
+    private static final int BLOB_BASE64 = 1;
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    // Batas ukuran satu string/blob dan pre-size koleksi dari jumlah yang dibaca dari file
+    private static final int MAX_FIELD_BYTES = 1024 * 1024;
+    private static final int PRESIZE_LIMIT = 1 << 16;
+    private static final java.lang.reflect.Type JSON_TYPE =
+            new com.google.gson.reflect.TypeToken<Map<UUID, PlayerData>>() {}.getType();
+
+    /** Menulis seluruh map ke file secara atomik (file sementara + rename), tanpa kompresi dan backup. */
+    public static long write(Map<UUID, PlayerData> data, Path path) throws IOException {
+        return SnapshotFile.write(path, 0, false, out -> write(data, out));
+    }
+
+    /**
+     * Menulis seluruh map ke stream dengan buffer tetap 64 KB; stream tidak ditutup.
+     * @return jumlah byte yang ditulis (sebelum kompresi, jika stream dikompres).
+     */
+    public static long write(Map<UUID, PlayerData> data, OutputStream stream) throws IOException {
+        StreamOutput out = new StreamOutput(stream);
+        out.bytes(MAGIC);
+        out.u8(VERSION);
+        // Salin entri dulu agar jumlah yang ditulis cocok walau map berubah saat iterasi
+        List<Map.Entry<UUID, PlayerData>> entries = new ArrayList<>(data.size());
+        List<PlayerData.SkinInfo[]> skinLists = new ArrayList<>(data.size());
+        Map<TextureKey, Integer> textureIndex = new LinkedHashMap<>();
+        for (Map.Entry<UUID, PlayerData> entry : data.entrySet()) {
+            if (entry.getValue() != null) {
+                PlayerData.SkinInfo[] skins = entry.getValue().getSkinSlots().toArray(new PlayerData.SkinInfo[0]);
+                for (PlayerData.SkinInfo skin : skins) {
+                    textureIndex.putIfAbsent(new TextureKey(skin.texture(), skin.signature()), textureIndex.size());
+                }
+                entries.add(Map.entry(entry.getKey(), entry.getValue()));
+                skinLists.add(skins);
+            }
+        }
+        out.varint(textureIndex.size());
+        for (TextureKey key : textureIndex.keySet()) {
+            out.blob(key.texture());
+            out.blob(key.signature());
+        }
+        out.varint(entries.size());
+        int playerIndex = 0;
+        for (Map.Entry<UUID, PlayerData> entry : entries) {
+            UUID uuid = entry.getKey();
+            PlayerData player = entry.getValue();
+            out.i64(uuid.getMostSignificantBits());
+            out.i64(uuid.getLeastSignificantBits());
+            Long activeId = player.getActiveSkinId();
+            out.u8(activeId != null ? FLAG_ACTIVE_SKIN : 0);
+            if (activeId != null) {
+                out.varlong(activeId);
+            }
+            PlayerData.SkinInfo[] skins = skinLists.get(playerIndex++);
+            out.varint(skins.length);
+            for (PlayerData.SkinInfo skin : skins) {
+                out.varlong(skin.id());
+                out.string(skin.name());
+                out.varint(textureIndex.get(new TextureKey(skin.texture(), skin.signature())));
+            }
+        }
+        out.flush();
+        return out.written();
+    }
+
+    /**
+     * Membaca file skins.dat (gzip dikenali otomatis) secara bertahap dengan buffer tetap 64 KB,
+     * sehingga heap yang dipakai hanya sebesar data hasil decode, bukan ditambah isi file.
+     */
+    public static ConcurrentMap<UUID, PlayerData> read(Path path) throws IOException {
+        try (ReadableByteChannel channel = SnapshotFile.openChannel(path)) {
+            StreamInput in = new StreamInput(channel, path);
+            byte[] magic = in.bytes(MAGIC.length);
+            if (!Arrays.equals(magic, MAGIC)) {
+                throw new IOException(path.getFileName() + " is not a SkinHub data file");
+            }
+            int version = in.u8();
+            if (version != 1 && version != VERSION) {
+                throw new IOException("Unsupported skin data version " + version + " in " + path.getFileName());
+            }
+            String[][] textures = null;
+            if (version >= 2) {
+                int count = in.varint();
+                List<String[]> table = new ArrayList<>(Math.min(count, PRESIZE_LIMIT));
+                for (int t = 0; t < count; t++) {
+                    table.add(new String[]{in.blob(), in.blob()});
+                }
+                textures = table.toArray(new String[0][]);
+            }
+            int players = in.varint();
+            ConcurrentMap<UUID, PlayerData> result =
+                    new ConcurrentHashMap<>(Math.max(16, Math.min(players, PRESIZE_LIMIT) * 4 / 3));
+            for (int i = 0; i < players; i++) {
+                if (Thread.currentThread().isInterrupted()) {
+                    throw new InterruptedIOException("Interrupted while loading skin data");
+                }
+                UUID uuid = new UUID(in.i64(), in.i64());
+                int flags = in.u8();
+                Long activeSkinId = (flags & FLAG_ACTIVE_SKIN) != 0 ? in.varlong() : null;
+                int skins = in.varint();
+                List<PlayerData.SkinInfo> slots = new ArrayList<>(Math.min(skins, PRESIZE_LIMIT));
+                for (int s = 0; s < skins; s++) {
+                    long id = in.varlong();
+                    String name = in.string();
+                    String texture;
+                    String signature;
+                    if (textures != null) {
+                        int index = in.varint();
+                        if (index >= textures.length) {
+                            throw new IOException("Texture index " + index + " out of range in " + path.getFileName());
+                        }
+                        texture = textures[index][0];
+                        signature = textures[index][1];
+                    } else {
+                        texture = in.blob();
+                        signature = in.blob();
+                    }
+                    slots.add(new PlayerData.SkinInfo(name, id, texture, signature));
+                }
+                result.put(uuid, new PlayerData(slots, activeSkinId));
+            }
+            return result;
+        } catch (ClosedByInterruptException e) {
+            // FileChannel ditutup karena interrupt; dilaporkan sama seperti pembatalan lain
+            throw new InterruptedIOException("Interrupted while loading skin data");
+        }
+    }
+
+    /** Mengekspor data ke JSON (format skins.json) untuk debugging. */
+    public static void exportJson(Map<UUID, PlayerData> data, Path target, Gson gson) throws IOException {
+        try (BufferedWriter writer = Files.newBufferedWriter(target, StandardCharsets.UTF_8)) {
+            gson.toJson(data, JSON_TYPE, writer);
+        }
+    }
+
+    /**
+     * Alat offline: java -cp SkinHub.jar com.zeroends.skinhub.SkinDataCodec skins.dat skins-export.json
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.err.println("Usage: SkinDataCodec <skins.dat> <output.json>");
+            System.exit(1);
+        }
+        ConcurrentMap<UUID, PlayerData> data = read(Paths.get(args[0]));
+        exportJson(data, Paths.get(args[1]), new GsonBuilder().setPrettyPrinting().create());
+        System.out.println("Exported " + data.size() + " player(s) to " + args[1]);
+    }
+
+    // ======== Encoding helpers ========
+
+    private record TextureKey(String texture, String signature) {}
+
+    /** Buffer masukan yang diisi ulang dari channel setiap kali habis. */
+    private static final class StreamInput {
+        private final ReadableByteChannel channel;
+        private final Path path;
+        private final ByteBuffer buf = ByteBuffer.allocate(BUFFER_SIZE).flip();
+
+        StreamInput(ReadableByteChannel channel, Path path) {
+            this.channel = channel;
+            this.path = path;
+        }
+
+        int u8() throws IOException {
+            require(1);
+            return buf.get() & 0xFF;
+        }
+
+        long i64() throws IOException {
+            require(8);
+            return buf.getLong();
+        }
+
+        int varint() throws IOException {
+            long value = varlong();
+            if (value < 0 || value > Integer.MAX_VALUE) {
+                throw new IOException("Varint out of range: " + value);
+            }
+            return (int) value;
+        }
+
+        long varlong() throws IOException {
+            long raw = 0;
+            int shift = 0;
+            while (true) {
+                int b = u8();
+                raw |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    break;
+                }
+                shift += 7;
+                if (shift > 63) {
+                    throw new IOException("Malformed varint");
+                }
+            }
+            // zigzag decode
+            return (raw >>> 1) ^ -(raw & 1);
+        }
+
+        String string() throws IOException {
+            return new String(bytes(length()), StandardCharsets.UTF_8);
+        }
+
+        String blob() throws IOException {
+            int encoding = u8();
+            byte[] bytes = bytes(length());
+            return switch (encoding) {
+                case BLOB_BASE64 -> Base64.getEncoder().encodeToString(bytes);
+                case BLOB_UTF8 -> new String(bytes, StandardCharsets.UTF_8);
+                default -> throw new IOException("Unknown blob encoding " + encoding);
+            };
+        }
+
+        byte[] bytes(int length) throws IOException {
+            byte[] bytes = new byte[length];
+            int offset = 0;
+            while (offset < length) {
+                require(1);
+                int n = Math.min(buf.remaining(), length - offset);
+                buf.get(bytes, offset, n);
+                offset += n;
+            }
+            return bytes;
+        }
+
+        // Panjang field dibatasi agar file rusak tidak memicu alokasi array raksasa
+        private int length() throws IOException {
+            int length = varint();
+            if (length > MAX_FIELD_BYTES) {
+                throw new IOException("Field length " + length + " out of range in " + path.getFileName());
+            }
+            return length;
+        }
+
+        private void require(int n) throws IOException {
+            while (buf.remaining() < n) {
+                buf.compact();
+                int read = channel.read(buf);
+                buf.flip();
+                if (read < 0) {
+                    throw new EOFException(path.getFileName() + " is truncated");
+                }
+            }
+        }
+    }
+
+    /** Buffer keluaran yang di-flush ke stream setiap kali penuh. */
+    private static final class StreamOutput {
+        private final OutputStream stream;
+        private final ByteBuffer buf = ByteBuffer.allocate(BUFFER_SIZE);
+        private long written;
+
+        StreamOutput(OutputStream stream) {
+            this.stream = stream;
+        }
+
+        long written() {
+            return written;
+        }
+
+        void u8(int v) throws IOException {
+            ensure(1);
+            buf.put((byte) v);
+        }
+
+        void i64(long v) throws IOException {
+            ensure(8);
+            buf.putLong(v);
+        }
+
+        void varint(int v) throws IOException {
+            varlong(v);
+        }
+
+        void varlong(long v) throws IOException {
+            ensure(10);
+            long zz = (v << 1) ^ (v >> 63);
+            while ((zz & ~0x7FL) != 0) {
+                buf.put((byte) ((zz & 0x7F) | 0x80));
+                zz >>>= 7;
+            }
+            buf.put((byte) zz);
+        }
+
+        void string(String s) throws IOException {
+            byte[] bytes = (s != null ? s : "").getBytes(StandardCharsets.UTF_8);
+            varint(bytes.length);
+            bytes(bytes);
+        }
+
+        void blob(String s) throws IOException {
+            String value = s != null ? s : "";
+            byte[] raw = decodeCanonicalBase64(value);
+            if (raw != null) {
+                u8(BLOB_BASE64);
+                varint(raw.length);
+                bytes(raw);
+            } else {
+                u8(BLOB_UTF8);
+                string(value);
+            }
+        }
+
+        void bytes(byte[] bytes) throws IOException {
+            if (bytes.length > buf.capacity()) {
+                flush();
+                stream.write(bytes);
+                written += bytes.length;
+                return;
+            }
+            ensure(bytes.length);
+            buf.put(bytes);
+        }
+
+        void flush() throws IOException {
+            stream.write(buf.array(), 0, buf.position());
+            written += buf.position();
+            buf.clear();
+        }
+
+        private void ensure(int n) throws IOException {
+            if (buf.remaining() < n) {
+                flush();
+            }
+        }
+
+        private static byte[] decodeCanonicalBase64(String value) {
+            if (value.isEmpty()) {
+                return null;
+            }
+            try {
+                byte[] raw = Base64.getDecoder().decode(value);
+                return Base64.getEncoder().encodeToString(raw).equals(value) ? raw : null;
+            } catch (IllegalArgumentException e) {
+                return null;
+            }
+        }
+    }
+}
@@ -4,7 +4,6 @@ import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 import net.skinsrestorer.api.SkinsRestorer;
 import net.skinsrestorer.api.SkinsRestorerProvider;
-import org.bukkit.Bukkit;
 import org.bukkit.ChatColor;
 import org.bukkit.command.Command;
 import org.bukkit.command.CommandExecutor;
@@ -14,29 +13,40 @@ import org.bukkit.entity.Player;
 import org.bukkit.plugin.java.JavaPlugin;
 import org.jetbrains.annotations.NotNull;
 
+import java.io.File;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
 import java.util.logging.Level;
 
 public class SkinHub extends JavaPlugin implements CommandExecutor {
 
     private SkinsRestorer skinsRestorer;
     private Storage storage;
+    private SaveScheduler saveScheduler;
+    private MineSkinCache mineSkinCache;
     private PinManager pinManager;
     private SkinManager skinManager;
     private WebServer webServer;
     private int webPort;
-
-    // Task ID untuk autosave
-    private int autosaveTaskId = -1;
+    private volatile boolean debugEnabled;
+    private final Metrics metrics = new Metrics();
+    // Selesai (true) setelah data skin dimuat di background, false jika gagal; web dan listener menunggu ini
+    private final CompletableFuture<Boolean> dataReady = new CompletableFuture<>();
+    // Menyelaraskan akhir load dengan onDisable: load yang masih berjalan saat plugin dimatikan dibatalkan
+    private final Object loadLock = new Object();
+    private boolean loadCancelled; // dijaga loadLock
+    private Thread loaderThread; // dijaga loadLock; null jika load tidak sedang berjalan
 
     @Override
     public void onEnable() {
         // 1. Setup Konfigurasi
         saveDefaultConfig();
         this.webPort = getConfig().getInt("web.port", 8123);
+        this.debugEnabled = getConfig().getBoolean("debug", false);
 
         // Set SimpleLogger level jika tersedia (perhatikan kemungkinan relocation)
         try {
-            boolean debug = getConfig().getBoolean("debug", false);
+            boolean debug = debugEnabled;
             try {
                 Class.forName("org.slf4j.impl.SimpleLogger");
                 System.setProperty("org.slf4j.simpleLogger.defaultLogLevel", debug ? "debug" : "warn");
@@ -51,28 +61,30 @@ public class SkinHub extends JavaPlugin implements CommandExecutor {
 
         // 2. Setup Tools
         Gson gson = new GsonBuilder().create();
-        this.storage = new Storage(this, gson);
-        this.pinManager = new PinManager(this);
+        this.storage = Storage.create(this, gson);
+        this.pinManager = new PinManager(this, storage);
+        metrics.gauge("skinhub_storage_ready", "1 once skin data has finished loading", () -> isDataReady() ? 1 : 0);
 
-        // Muat data skin
-        if (!storage.loadData()) {
-            getLogger().severe("Failed to load skin data. Shutting down.");
-            getServer().getPluginManager().disablePlugin(this);
-            return;
-        }
+        // Satu thread penulis untuk semua penyimpanan (menggabungkan save beruntun)
+        this.saveScheduler = new SaveScheduler(this, storage);
 
-        // 3. Inisialisasi SkinManager sementara (nullsafe)
-        this.skinManager = new SkinManager(this, storage, null, null);
+        // Cache hasil MineSkin (persisten, disimpan bersama autosave)
+        this.mineSkinCache = new MineSkinCache(this, gson);
+        mineSkinCache.load();
+        saveScheduler.addAutosaveHook(mineSkinCache::saveIfDirty);
 
-        // 4. Setup SkinsRestorer dengan cara benar (v15+)
+        // 3. Setup SkinsRestorer dengan cara benar (v15+)
         if (!setupSkinsRestorer()) {
             getLogger().severe("SkinsRestorer not found or API is unavailable. Shutting down.");
+            dataReady.complete(false);
             getServer().getPluginManager().disablePlugin(this);
             return;
         }
-        this.skinManager = new SkinManager(this, storage, skinsRestorer, null);
 
-        // 5. Inisialisasi Web Server
+        // 4. SkinManager dibuat sekali, setelah API SkinsRestorer tersedia
+        this.skinManager = new SkinManager(this, storage, saveScheduler, skinsRestorer, mineSkinCache);
+
+        // 5. Inisialisasi Web Server (endpoint yang butuh data skin menjawab 503 sampai data siap)
         this.webServer = new WebServer(this, pinManager, skinManager);
 
         // 6. Mulai Web Server
@@ -81,6 +93,7 @@ public class SkinHub extends JavaPlugin implements CommandExecutor {
             getLogger().info("Web server started successfully on port " + webPort);
         } catch (Exception e) {
             getLogger().log(Level.SEVERE, "Failed to start Web Server on port " + webPort, e);
+            dataReady.complete(false);
             getServer().getPluginManager().disablePlugin(this);
             return;
         }
@@ -94,34 +107,98 @@ public class SkinHub extends JavaPlugin implements CommandExecutor {
         }
 
         // 8. Register Listener untuk re-apply skin aktif saat join
-        getServer().getPluginManager().registerEvents(new PlayerJoinListener(skinManager), this);
-
-        // 9. Jadwalkan autosave sesuai config (asinkron)
-        int saveIntervalMin = Math.max(1, getConfig().getInt("storage.save-interval-minutes", 15));
-        long periodTicks = saveIntervalMin * 60L * 20L;
-        this.autosaveTaskId = Bukkit.getScheduler().runTaskTimerAsynchronously(this, () -> {
-            if (!storage.saveData()) {
-                getLogger().warning("Autosave failed: could not save skins.json");
-            } else {
-                logDebug("Autosave completed.");
+        getServer().getPluginManager().registerEvents(new PlayerJoinListener(this, skinManager, storage, dataReady), this);
+
+        // 9. Muat data skin di background; waktu boot server tidak bergantung pada ukuran data
+        getServer().getScheduler().runTaskAsynchronously(this, this::loadSkinData);
+    }
+
+    private void loadSkinData() {
+        synchronized (loadLock) {
+            if (loadCancelled) {
+                return;
+            }
+            loaderThread = Thread.currentThread();
+        }
+        try {
+            long started = System.nanoTime();
+            boolean loaded;
+            try {
+                loaded = storage.loadData();
+            } catch (RuntimeException e) {
+                getLogger().log(Level.SEVERE, "Unexpected error while loading skin data", e);
+                loaded = false;
+            }
+            synchronized (loadLock) {
+                if (loadCancelled) {
+                    // Plugin dimatikan selama load berjalan (load bisa gagal karena di-interrupt); bukan error
+                    return;
+                }
+                if (!loaded) {
+                    getLogger().severe("Failed to load skin data. Shutting down.");
+                    dataReady.complete(false);
+                    getServer().getScheduler().runTask(this, () -> getServer().getPluginManager().disablePlugin(this));
+                    return;
+                }
+                // Antrian MineSkin (job yang dilanjutkan) dan autosave baru boleh menyentuh storage setelah data dimuat
+                skinManager.start();
+                int saveIntervalMin = Math.max(1, getConfig().getInt("storage.save-interval-minutes", 15));
+                saveScheduler.startAutosave(saveIntervalMin);
+                logDebug(() -> "Autosave scheduled every " + saveIntervalMin + " minute(s).");
+                dataReady.complete(true);
             }
-        }, periodTicks, periodTicks).getTaskId();
-        logDebug("Autosave scheduled every " + saveIntervalMin + " minute(s).");
+            long elapsedMillis = (System.nanoTime() - started) / 1_000_000;
+            getLogger().info("Skin data loaded in " + elapsedMillis + " ms.");
+        } finally {
+            synchronized (loadLock) {
+                loaderThread = null;
+                // Thread milik scheduler Bukkit dipakai ulang; interrupt dari onDisable tidak boleh terbawa
+                Thread.interrupted();
+            }
+        }
     }
 
     @Override
     public void onDisable() {
-        // Batalkan autosave dan simpan terakhir kali
-        try {
-            if (autosaveTaskId != -1) {
-                Bukkit.getScheduler().cancelTask(autosaveTaskId);
-                autosaveTaskId = -1;
+        // Data yang gagal atau belum selesai dimuat tidak boleh disimpan. Load yang masih berjalan tidak ditunggu
+        // (main thread tidak boleh tertahan): load dibatalkan lewat interrupt dan save dilewati
+        boolean dataLoaded;
+        synchronized (loadLock) {
+            loadCancelled = true;
+            if (!dataReady.isDone() && loaderThread != null) {
+                getLogger().warning("Skin data is still loading; cancelling the load.");
+                loaderThread.interrupt();
             }
-        } catch (Exception ignored) {}
+            dataReady.complete(false);
+            dataLoaded = storage != null && isDataReady();
+        }
+
+        // Hentikan antrian MineSkin dulu; job yang belum selesai dilanjutkan saat start berikutnya
+        if (skinManager != null) {
+            skinManager.shutdown();
+        }
+
+        // Hentikan thread penulis setelah flush terakhir, lalu tutup storage
         try {
-            if (storage != null) {
+            if (!dataLoaded) {
+                if (saveScheduler != null) {
+                    saveScheduler.stop();
+                }
+                if (storage != null) {
+                    getLogger().warning("Skin data was not loaded; skipping save on shutdown.");
+                }
+            } else if (saveScheduler != null) {
+                saveScheduler.shutdown();
+            } else {
                 storage.saveData();
             }
+            if (storage != null) {
+                storage.close();
+            }
+            if (mineSkinCache != null) {
+                mineSkinCache.saveIfDirty();
+                logDebug(() -> "MineSkin cache: " + mineSkinCache.getHits() + " hit(s), " + mineSkinCache.getMisses() + " miss(es).");
+            }
         } catch (Exception e) {
             getLogger().log(Level.WARNING, "Error while saving data on shutdown", e);
         }
@@ -134,6 +211,10 @@ public class SkinHub extends JavaPlugin implements CommandExecutor {
         } catch (Exception e) {
             getLogger().log(Level.WARNING, "Error while stopping web server", e);
         }
+
+        if (pinManager != null) {
+            pinManager.shutdown();
+        }
     }
 
     @Override
@@ -148,20 +229,63 @@ public class SkinHub extends JavaPlugin implements CommandExecutor {
                 return true;
             }
         }
+        if (args.length > 0 && args[0].equalsIgnoreCase("export")) {
+            if (!sender.hasPermission("skinhub.admin")) {
+                sender.sendMessage(ChatColor.RED + "Kamu tidak punya izin untuk perintah ini.");
+                return true;
+            }
+            if (!isDataReady()) {
+                sender.sendMessage(ChatColor.RED + "Data skin masih dimuat, coba lagi sebentar.");
+                return true;
+            }
+            // Ekspor data skin ke JSON untuk debugging (berguna saat storage.format: binary)
+            File target = new File(getDataFolder(), "skins-export.json");
+            getServer().getScheduler().runTaskAsynchronously(this, () -> {
+                if (storage.exportJson(target)) {
+                    sender.sendMessage(ChatColor.GREEN + "Data skin diekspor ke " + target.getName());
+                } else {
+                    sender.sendMessage(ChatColor.RED + "Ekspor gagal, lihat console.");
+                }
+            });
+            return true;
+        }
         sender.sendMessage(ChatColor.AQUA + "Perintah SkinHub (gunakan /skinhub pin untuk melihat PIN Anda)");
         return true;
     }
 
-    // Tambahkan logDebug untuk debug
+    // Tambahkan logDebug untuk debug; level dibaca sekali saat enable sehingga pemanggilan saat debug mati gratis
     public void logDebug(String message) {
-        if (getConfig().getBoolean("debug", false)) {
+        if (debugEnabled) {
             getLogger().info("[DEBUG] " + message);
         }
     }
 
+    /** Versi lazy: pesan hanya dibangun jika debug aktif. */
+    public void logDebug(Supplier<String> message) {
+        if (debugEnabled) {
+            getLogger().info("[DEBUG] " + message.get());
+        }
+    }
+
+    public boolean isDebugEnabled() {
+        return debugEnabled;
+    }
+
+    /** true jika data skin sudah selesai dimuat. */
+    public boolean isDataReady() {
+        return Boolean.TRUE.equals(dataReady.getNow(false));
+    }
+
+    /** Menandai hasil load data skin; dipakai juga oleh load test yang merakit komponen tanpa onEnable. */
+    void completeDataLoad(boolean loaded) {
+        dataReady.complete(loaded);
+    }
+
     // Getters
     public SkinManager getSkinManager() { return skinManager; }
+    public SaveScheduler getSaveScheduler() { return saveScheduler; }
     public int getWebPort() { return webPort; }
+    public Metrics getMetrics() { return metrics; }
 
     private boolean setupSkinsRestorer() {
         try {
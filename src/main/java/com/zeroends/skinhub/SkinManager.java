@@ -17,33 +17,62 @@ import java.net.URI;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
 import java.net.http.HttpRequest.BodyPublishers;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.util.List;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.logging.Level;
 
 public class SkinManager {
 
+    // Batas dimensi jika require-64x64 dimatikan (mencegah decompression bomb)
+    private static final int MAX_SKIN_DIMENSION = 1024;
+    private static final String DEFAULT_MINESKIN_URL = "https://api.mineskin.org/generate/upload";
+    // Hasil persiapan pre-login yang tidak pernah join (login ditolak plugin lain) dibuang setelah ini
+    private static final long PREPARED_SKIN_TTL_SECONDS = 60;
+    // Request yang menggantung tidak boleh menahan slot in-flight antrian MineSkin selamanya
+    private static final Duration MINESKIN_CONNECT_TIMEOUT = Duration.ofSeconds(10);
+
     private final SkinHub plugin;
     private final Storage storage;
+    private final SaveScheduler saveScheduler;
     private final SkinsRestorer skinsRestorerApi;
     private final HttpClient httpClient;
     private final Gson gson;
     private final String mineskinApiKey;
+    private final URI mineskinUploadUri;
+    private final Duration mineskinRequestTimeout;
     private final int maxSkins;
     private final boolean require64x64;
     private final long maxFileSize;
     private final Cache<UUID, Long> uploadCooldowns;
-
-    public SkinManager(SkinHub plugin, Storage storage, SkinsRestorer skinsRestorerApi, Object mineskinClientPlaceholder) {
+    private final Cache<UUID, PreparedSkin> preparedSkins;
+    private final MineSkinCache mineSkinCache;
+    private final MineSkinQueue mineSkinQueue;
+    private final SkinApplyQueue applyQueue;
+    private final SkinsRestorerWriter skinsRestorerWriter;
+    private final Metrics.Counter uploads;
+    private final Metrics.Histogram applyLatency;
+
+    public SkinManager(SkinHub plugin, Storage storage, SaveScheduler saveScheduler, SkinsRestorer skinsRestorerApi, MineSkinCache mineSkinCache) {
         this.plugin = plugin;
         this.storage = storage;
+        this.saveScheduler = saveScheduler;
         this.skinsRestorerApi = skinsRestorerApi;
-        this.httpClient = HttpClient.newBuilder().version(HttpClient.Version.HTTP_2).build();
+        this.mineSkinCache = mineSkinCache;
+        this.httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .connectTimeout(MINESKIN_CONNECT_TIMEOUT)
+                .build();
         this.gson = new Gson();
         this.mineskinApiKey = plugin.getConfig().getString("mineskin.api-key", "");
+        this.mineskinUploadUri = parseMineskinUrl(plugin.getConfig().getString("mineskin.api-url", DEFAULT_MINESKIN_URL));
+        this.mineskinRequestTimeout = Duration.ofSeconds(Math.max(5, plugin.getConfig().getInt("mineskin.request-timeout-seconds", 60)));
 
         this.maxSkins = plugin.getConfig().getInt("skin-management.max-skins", 5);
         this.require64x64 = plugin.getConfig().getBoolean("skin-management.require-64x64", true);
@@ -53,18 +82,50 @@ public class SkinManager {
         this.uploadCooldowns = CacheBuilder.newBuilder()
                 .expireAfterWrite(cooldownSeconds, TimeUnit.SECONDS)
                 .build();
+        this.preparedSkins = CacheBuilder.newBuilder()
+                .expireAfterWrite(PREPARED_SKIN_TTL_SECONDS, TimeUnit.SECONDS)
+                .build();
+
+        this.mineSkinQueue = new MineSkinQueue(plugin, httpClient, gson);
+        this.applyQueue = new SkinApplyQueue(plugin, skinsRestorerApi);
+        this.skinsRestorerWriter = new SkinsRestorerWriter(plugin, skinsRestorerApi, gson);
+        this.uploads = plugin.getMetrics().counter("skinhub_uploads_total",
+                "Skin uploads received, by outcome (rejected, cache_hit, queued).", "outcome");
+        this.applyLatency = plugin.getMetrics().histogram("skinhub_apply_seconds",
+                "Time to apply a skin through SkinsRestorer.", Metrics.LATENCY_BUCKETS);
+    }
+
+    /** Memulai antrian MineSkin (termasuk job tertunda dari sesi sebelumnya) dan write-behind SkinsRestorer. */
+    public void start() {
+        skinsRestorerWriter.load();
+        saveScheduler.addAutosaveHook(skinsRestorerWriter::saveIfDirty);
+        mineSkinQueue.start(new QueueHandler());
+    }
+
+    /** @return versi data koleksi pemain (0 jika pemain belum punya data). */
+    public long getCollectionVersion(UUID playerUuid) {
+        PlayerData playerData = storage.findPlayerData(playerUuid);
+        return playerData != null ? playerData.getVersion() : 0;
     }
 
     public List<PlayerData.SkinInfo> getSkinCollection(UUID playerUuid) {
-        return storage.getPlayerData(playerUuid).getSkinSlots();
+        PlayerData playerData = storage.findPlayerData(playerUuid);
+        return playerData != null ? playerData.getSkinSlots() : List.of();
+    }
+
+    /** @return skin milik pemain dengan id ini, atau null jika tidak ada. */
+    public PlayerData.SkinInfo findSkin(UUID playerUuid, long skinId) {
+        PlayerData playerData = storage.findPlayerData(playerUuid);
+        return playerData != null ? playerData.getSkinById(skinId) : null;
     }
 
     public CompletableFuture<Boolean> applySkin(UUID playerUuid, long skinId) {
-        PlayerData playerData = storage.getPlayerData(playerUuid);
-        PlayerData.SkinInfo skinInfo = playerData.getSkinById(skinId);
+        long started = System.nanoTime();
+        PlayerData playerData = storage.findPlayerData(playerUuid);
+        PlayerData.SkinInfo skinInfo = playerData != null ? playerData.getSkinById(skinId) : null;
 
         if (skinInfo == null) {
-            plugin.logDebug("Apply failed: Skin ID " + skinId + " not found for " + playerUuid);
+            plugin.logDebug(() -> "Apply failed: Skin ID " + skinId + " not found for " + playerUuid);
             return CompletableFuture.completedFuture(false);
         }
 
@@ -79,165 +140,300 @@ public class SkinManager {
 
         return future.thenApply(success -> {
             if (Boolean.TRUE.equals(success)) {
-                playerData.setActiveSkinId(skinId);
-                scheduleSave();
+                // Skin bisa saja dihapus selama apply berjalan; id aktif hanya dipasang jika skin masih ada
+                PlayerData updated = storage.update(playerUuid,
+                        current -> current.getSkinById(skinId) != null ? current.withActiveSkinId(skinId) : current);
+                if (Long.valueOf(skinId).equals(updated.getActiveSkinId())) {
+                    scheduleSave(playerUuid);
+                }
             }
+            applyLatency.observeSince(started);
             return success;
         });
     }
 
     private CompletableFuture<Boolean> applySkinToPlayer(OfflinePlayer player, PlayerData.SkinInfo skinInfo) {
-        CompletableFuture<Boolean> future = new CompletableFuture<>();
         SkinProperty skinProperty = SkinProperty.of(skinInfo.texture(), skinInfo.signature());
 
         String lastKnownName = player.getName() != null ? player.getName() : "Unknown";
 
-        skinsRestorerApi.getSkinStorage().setPlayerSkinData(
-                player.getUniqueId(),
-                lastKnownName,
-                skinProperty,
-                System.currentTimeMillis()
-        );
-
-        skinsRestorerApi.getPlayerStorage().removeSkinIdOfPlayer(player.getUniqueId());
+        skinsRestorerWriter.push(player.getUniqueId(), lastKnownName, skinProperty);
+        // Pemain yang sedang login tidak boleh menerima skin lama dari persiapan pre-login
+        preparedSkins.invalidate(player.getUniqueId());
 
+        plugin.logDebug(() -> "Applied skin " + skinInfo.name() + " to " + lastKnownName);
+        // Refresh skin yang terlihat (paket ke semua viewer) dijalankan lewat antrian main thread
         if (player.isOnline()) {
-            skinsRestorerApi.getSkinApplier(Player.class).applySkin(player.getPlayer(), skinProperty);
+            return applyQueue.submit(player.getUniqueId(), skinProperty);
         }
-
-        plugin.logDebug("Applied skin " + skinInfo.name() + " to " + lastKnownName);
-        future.complete(true);
-        return future;
+        return CompletableFuture.completedFuture(true);
     }
 
     public boolean deleteSkin(UUID playerUuid, long skinId) {
-        PlayerData playerData = storage.getPlayerData(playerUuid);
-        PlayerData.SkinInfo skinInfo = playerData.getSkinById(skinId);
-
-        if (skinInfo != null) {
-            skinsRestorerApi.getPlayerStorage().removeSkinIdOfPlayer(playerUuid);
+        if (storage.findPlayerData(playerUuid) == null) {
+            return false;
+        }
+        // Diisi oleh percobaan update terakhir (yang terpasang)
+        AtomicReference<PlayerData.SkinInfo> removed = new AtomicReference<>();
+        storage.update(playerUuid, current -> {
+            removed.set(current.getSkinById(skinId));
+            return current.withoutSkin(skinId);
+        });
+        PlayerData.SkinInfo skinInfo = removed.get();
+        if (skinInfo == null) {
+            return false;
         }
 
-        boolean removed = playerData.removeSkin(skinId);
-        if (removed) {
-            if (playerData.getActiveSkinId() != null && playerData.getActiveSkinId() == skinId) {
-                playerData.setActiveSkinId(null);
-            }
-            plugin.logDebug("Deleted skin ID " + skinId + " for " + playerUuid);
-            scheduleSave();
+        skinsRestorerWriter.remove(playerUuid);
+        storage.getTextureStore().release(skinInfo);
+        preparedSkins.invalidate(playerUuid);
+        plugin.logDebug(() -> "Deleted skin ID " + skinId + " for " + playerUuid);
+        scheduleSave(playerUuid);
+        return true;
+    }
+
+    /**
+     * Menyiapkan skin aktif pemain sebelum join; dipanggil dari AsyncPlayerPreLoginEvent (di luar main thread).
+     * Lookup data, pembuatan SkinProperty dan push ke storage SkinsRestorer (bisa MySQL) terjadi di sini,
+     * sehingga saat join cukup {@link #applyPreparedSkin} yang hanya me-refresh skin di memori.
+     */
+    public void prepareActiveSkin(UUID playerUuid, String playerName) {
+        preparedSkins.put(playerUuid, new PreparedSkin(prepareProperty(playerUuid, playerName)));
+    }
+
+    /**
+     * Menerapkan skin yang sudah disiapkan saat pre-login; dipanggil di main thread saat join, tanpa I/O.
+     * Apply masuk antrian main thread agar join bersamaan tersebar ke beberapa tick.
+     * Jika pemain belum disiapkan (misalnya plugin di-load saat pemain sedang login), persiapan
+     * dijalankan async lebih dulu.
+     */
+    public void applyPreparedSkin(Player player) {
+        UUID playerUuid = player.getUniqueId();
+        PreparedSkin prepared = preparedSkins.getIfPresent(playerUuid);
+        if (prepared != null) {
+            preparedSkins.invalidate(playerUuid);
+            applyProperty(player, prepared.property());
+            return;
         }
-        return removed;
+        String playerName = player.getName();
+        Bukkit.getScheduler().runTaskAsynchronously(plugin, () -> {
+            SkinProperty skinProperty = prepareProperty(playerUuid, playerName);
+            if (skinProperty != null) {
+                applyQueue.submit(playerUuid, skinProperty);
+            }
+        });
     }
 
-    public void applyActiveSkinIfAny(UUID playerUuid) {
-        PlayerData data = storage.getPlayerData(playerUuid);
+    /** @return SkinProperty skin aktif (sudah di-push ke storage SkinsRestorer), atau null jika tidak ada skin aktif. */
+    private SkinProperty prepareProperty(UUID playerUuid, String playerName) {
+        PlayerData data = storage.findPlayerData(playerUuid);
+        if (data == null) return null;
         Long activeId = data.getActiveSkinId();
-        if (activeId == null) return;
+        if (activeId == null) return null;
 
         PlayerData.SkinInfo skinInfo = data.getSkinById(activeId);
         if (skinInfo == null) {
-            data.setActiveSkinId(null);
-            scheduleSave();
-            return;
+            storage.update(playerUuid, current -> activeId.equals(current.getActiveSkinId())
+                    && current.getSkinById(activeId) == null ? current.withActiveSkinId(null) : current);
+            scheduleSave(playerUuid);
+            return null;
         }
 
-        Player player = Bukkit.getPlayer(playerUuid);
-        if (player != null) {
-            SkinProperty skinProperty = SkinProperty.of(skinInfo.texture(), skinInfo.signature());
-            skinsRestorerApi.getSkinStorage().setPlayerSkinData(
-                    player.getUniqueId(),
-                    player.getName() != null ? player.getName() : "Unknown",
-                    skinProperty,
-                    System.currentTimeMillis()
-            );
-            skinsRestorerApi.getPlayerStorage().removeSkinIdOfPlayer(player.getUniqueId());
-            skinsRestorerApi.getSkinApplier(Player.class).applySkin(player, skinProperty);
-            plugin.logDebug("Re-applied active skin ID " + activeId + " for " + player.getName());
-        }
+        SkinProperty skinProperty = SkinProperty.of(skinInfo.texture(), skinInfo.signature());
+        skinsRestorerWriter.push(playerUuid, playerName != null ? playerName : "Unknown", skinProperty);
+        plugin.logDebug(() -> "Prepared active skin ID " + activeId + " for " + playerName);
+        return skinProperty;
     }
 
-    public CompletableFuture<UploadResult> processUploadedSkin(UUID playerUuid, byte[] fileData, String fileName) {
-        if (uploadCooldowns.getIfPresent(playerUuid) != null) {
-            return CompletableFuture.completedFuture(new UploadResult(false, "Please wait before uploading again.", null));
+    private void applyProperty(Player player, SkinProperty skinProperty) {
+        if (skinProperty == null) {
+            return;
         }
+        applyQueue.submit(player.getUniqueId(), skinProperty);
+        plugin.logDebug(() -> "Queued active skin re-apply for " + player.getName());
+    }
+
+    /**
+     * Memvalidasi upload lalu menyelesaikannya dari cache, atau memasukkannya ke antrian MineSkin.
+     * Tidak pernah menunggu MineSkin; hasil antrian dapat dicek lewat {@link #getUploadJob}.
+     */
+    public UploadResult processUploadedSkin(UUID playerUuid, byte[] fileData, String fileName) {
+        UploadResult result = acceptUpload(playerUuid, fileData, fileName);
+        uploads.inc(!result.success() ? "rejected" : result.jobId() != null ? "queued" : "cache_hit");
+        return result;
+    }
+
+    private UploadResult acceptUpload(UUID playerUuid, byte[] fileData, String fileName) {
         if (fileData.length > maxFileSize) {
-            return CompletableFuture.completedFuture(new UploadResult(false, "File size exceeds " + (maxFileSize / 1024) + " KB limit.", null));
+            return new UploadResult(false, "File size exceeds " + (maxFileSize / 1024) + " KB limit.", null, null);
         }
         PlayerData playerData = storage.getPlayerData(playerUuid);
         if (playerData.getSkinSlots().size() >= maxSkins) {
-            return CompletableFuture.completedFuture(new UploadResult(false, "Skin collection is full (Max " + maxSkins + ").", null));
+            return new UploadResult(false, "Skin collection is full (Max " + maxSkins + ").", null, null);
+        }
+
+        String cacheKey;
+        try {
+            cacheKey = validatePng(fileData);
+        } catch (IOException e) {
+            return new UploadResult(false, "Error reading image file.", null, null);
+        }
+        if (cacheKey == null) {
+            return new UploadResult(false, "Invalid skin file (must be 64x64 .png).", null, null);
+        }
+
+        // Gambar yang sama sudah pernah ditandatangani: selesai lokal, tanpa API dan tanpa cooldown
+        MineSkinCache.CachedSkin cached = mineSkinCache.get(cacheKey);
+        if (cached != null) {
+            plugin.logDebug(() -> "MineSkin cache hit for " + fileName + " (" + cacheKey.substring(0, 12) + ")");
+            return addUploadedSkin(playerUuid, stripPngExtension(fileName), cached.texture(), cached.signature(), null);
+        }
+
+        if (uploadCooldowns.getIfPresent(playerUuid) != null) {
+            return new UploadResult(false, "Please wait before uploading again.", null, null);
+        }
+
+        MineSkinQueue.Job job = mineSkinQueue.submit(playerUuid, fileData, fileName, cacheKey);
+        if (job == null) {
+            return new UploadResult(false, "Upload queue is full or unavailable. Please try again in a moment.", null, null);
+        }
+        uploadCooldowns.put(playerUuid, System.currentTimeMillis());
+        plugin.logDebug(() -> "Queued MineSkin job " + job.id() + " for " + fileName);
+        return new UploadResult(true, "Upload queued for processing.", null, job.id());
+    }
+
+    /** @return job upload milik pemain, atau null jika tidak ditemukan. */
+    public MineSkinQueue.Job getUploadJob(UUID playerUuid, String jobId) {
+        return mineSkinQueue.getJob(jobId, playerUuid);
+    }
+
+    public void shutdown() {
+        mineSkinQueue.shutdown();
+        applyQueue.shutdown();
+        skinsRestorerWriter.shutdown();
+    }
+
+    /** Menghubungkan antrian MineSkin dengan pembuatan request dan penyimpanan hasil di SkinManager. */
+    private class QueueHandler implements MineSkinQueue.Handler {
+        @Override
+        public HttpRequest buildRequest(MineSkinQueue.Job job) {
+            String boundary = "---MineskinBoundary" + System.currentTimeMillis();
+            plugin.logDebug(() -> "Sending manual Mineskin request for " + job.fileName());
+            return buildMultipartRequest(job.png(), job.fileName(), boundary);
+        }
+
+        @Override
+        public UploadResult onSuccess(MineSkinQueue.Job job, String responseBody) {
+            MineSkinResponse apiResponse = gson.fromJson(responseBody, MineSkinResponse.class);
+
+            if (apiResponse == null || apiResponse.data == null || apiResponse.data.texture == null) {
+                plugin.getLogger().warning("Mineskin returned invalid JSON or null data. Body: " + responseBody.substring(0, Math.min(responseBody.length(), 100)));
+                return new UploadResult(false, "Failed to parse API response.", null, job.id());
+            }
+            MineSkinData data = apiResponse.data;
+
+            String apiSkinName = data.name;
+            if (apiSkinName == null || apiSkinName.isEmpty()) {
+                apiSkinName = job.fileName();
+            }
+
+            mineSkinCache.put(job.cacheKey(), data.texture.value, data.texture.signature);
+            return addUploadedSkin(job.playerUuid(), apiSkinName, data.texture.value, data.texture.signature, job.id());
         }
 
+        @Override
+        public String describeFailure(HttpResponse<String> response) {
+            String msg = parseApiError(response, gson);
+            plugin.getLogger().log(Level.WARNING, String.format("Mineskin API Failed (Status: %d, Body: %s)", response.statusCode(), msg));
+            if (response.statusCode() == 400 || response.statusCode() == 401) {
+                return "API Rejected: Invalid file format or missing API key.";
+            }
+            return "API Error (" + response.statusCode() + "): " + msg;
+        }
+
+        @Override
+        public String describeNetworkError(Throwable cause) {
+            if (mineskinApiKey == null || mineskinApiKey.isEmpty() || mineskinApiKey.contains("DUMMY_API_KEY")) {
+                return "API Key untuk Mineskin belum diisi di config.yml!";
+            }
+            if (cause instanceof HttpTimeoutException) {
+                return "MineSkin did not respond in time.";
+            }
+            return "Network error: " + cause.getClass().getSimpleName();
+        }
+    }
+
+    /**
+     * Memvalidasi file PNG upload: signature + IHDR dulu, sehingga dimensi yang salah ditolak
+     * sebelum ada piksel yang di-decode, lalu decode penuh untuk hash piksel.
+     * @return key cache MineSkin, atau null jika file bukan skin yang valid.
+     */
+    String validatePng(byte[] fileData) throws IOException {
+        PngHeader header = PngHeader.parse(fileData);
+        if (header == null || !isAcceptedSize(header)) {
+            return null;
+        }
         try (ByteArrayInputStream is = new ByteArrayInputStream(fileData)) {
             BufferedImage image = ImageIO.read(is);
-            if (image == null || (require64x64 && (image.getWidth() != 64 || image.getHeight() != 64))) {
-                return CompletableFuture.completedFuture(new UploadResult(false, "Invalid skin file (must be 64x64 .png).", null));
+            if (image == null || image.getWidth() != header.width() || image.getHeight() != header.height()) {
+                return null;
             }
-        } catch (IOException e) {
-            return CompletableFuture.completedFuture(new UploadResult(false, "Error reading image file.", null));
+            return MineSkinCache.keyOf(image);
         }
+    }
 
-        uploadCooldowns.put(playerUuid, System.currentTimeMillis());
+    private boolean isAcceptedSize(PngHeader header) {
+        if (require64x64) {
+            return header.width() == 64 && header.height() == 64;
+        }
+        return header.width() <= MAX_SKIN_DIMENSION && header.height() <= MAX_SKIN_DIMENSION;
+    }
 
-        String boundary = "---MineskinBoundary" + System.currentTimeMillis();
-        HttpRequest request = buildMultipartRequest(fileData, fileName, boundary);
-        plugin.logDebug("Sending manual Mineskin request for " + fileName);
-
-        return httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofString())
-                .thenApply(response -> {
-                    if (response.statusCode() != 200 && response.statusCode() != 201) {
-                        String msg = parseApiError(response, this.gson);
-                        plugin.getLogger().log(Level.WARNING, String.format("Mineskin API Failed (Status: %d, Body: %s)", response.statusCode(), msg));
-                        if (response.statusCode() == 429) {
-                            return new UploadResult(false, "Rate limit hit. Please wait based on API response headers.", null);
-                        }
-                        if (response.statusCode() == 400 || response.statusCode() == 401) {
-                            return new UploadResult(false, "API Rejected: Invalid file format or missing API key.", null);
-                        }
-                        return new UploadResult(false, "API Error (" + response.statusCode() + "): " + msg, null);
-                    }
-                    MineSkinResponse apiResponse = gson.fromJson(response.body(), MineSkinResponse.class);
-
-                    if (apiResponse == null || apiResponse.data == null) {
-                        plugin.getLogger().warning("Mineskin returned invalid JSON or null data. Body: " + response.body().substring(0, Math.min(response.body().length(), 100)));
-                        return new UploadResult(false, "Failed to parse API response.", null);
-                    }
-                    MineSkinData data = apiResponse.data;
-
-                    String apiSkinName = data.name;
-                    if (apiSkinName == null || apiSkinName.isEmpty()) {
-                        apiSkinName = fileName;
-                    }
-
-                    PlayerData.SkinInfo newSkinInfo = new PlayerData.SkinInfo(
-                            apiSkinName,
-                            System.currentTimeMillis(),
-                            data.texture.value,
-                            data.texture.signature
-                    );
-
-                    if (playerData.addSkin(newSkinInfo, maxSkins)) {
-                        scheduleSave();
-                        return new UploadResult(true, "Skin uploaded successfully!", newSkinInfo);
-                    } else {
-                        return new UploadResult(false, "Failed to add skin to collection (duplicate?).", null);
-                    }
-                })
-                .exceptionally(ex -> {
-                    Throwable cause = ex.getCause() != null ? ex.getCause() : ex;
-                    plugin.getLogger().log(Level.SEVERE, "HTTP Client execution failed.", cause);
-
-                    String message = "Network error: " + cause.getClass().getSimpleName();
-
-                    if (mineskinApiKey == null || mineskinApiKey.isEmpty() || mineskinApiKey.contains("DUMMY_API_KEY")) {
-                        message = "API Key untuk Mineskin belum diisi di config.yml!";
-                    }
-                    return new UploadResult(false, message, null);
-                });
+    private URI parseMineskinUrl(String url) {
+        try {
+            URI uri = URI.create(url);
+            if ("http".equalsIgnoreCase(uri.getScheme()) || "https".equalsIgnoreCase(uri.getScheme())) {
+                return uri;
+            }
+        } catch (IllegalArgumentException ignored) {
+            // ditangani di bawah
+        }
+        plugin.getLogger().warning("Invalid mineskin.api-url '" + url + "', using " + DEFAULT_MINESKIN_URL);
+        return URI.create(DEFAULT_MINESKIN_URL);
     }
 
-    private HttpRequest buildMultipartRequest(byte[] fileData, String fileName, String boundary) {
-        String skinName = fileName.endsWith(".png") ? fileName.substring(0, fileName.length() - 4) : fileName;
+    private static String stripPngExtension(String fileName) {
+        return fileName.endsWith(".png") ? fileName.substring(0, fileName.length() - 4) : fileName;
+    }
+
+    private UploadResult addUploadedSkin(UUID playerUuid, String skinName, String texture, String signature, String jobId) {
+        // Ambil ulang dari storage: hasil antrian bisa selesai jauh setelah upload diterima
+        if (storage.getPlayerData(playerUuid).hasTexture(texture)) {
+            return new UploadResult(false, "Failed to add skin to collection (duplicate?).", null, jobId);
+        }
+
+        // Texture yang sama dari pemain lain dibagi lewat TextureStore
+        TextureStore textureStore = storage.getTextureStore();
+        PlayerData.SkinInfo newSkinInfo = textureStore.acquire(new PlayerData.SkinInfo(
+                skinName,
+                System.currentTimeMillis(),
+                texture,
+                signature
+        ));
+
+        // Cek slot penuh dan duplikat terjadi di dalam update, jadi upload bersamaan tidak bisa melewati maxSkins
+        PlayerData updated = storage.update(playerUuid, current -> current.withSkin(newSkinInfo, maxSkins));
+        if (updated.getSkinById(newSkinInfo.id()) == newSkinInfo) {
+            scheduleSave(playerUuid);
+            return new UploadResult(true, "Skin uploaded successfully!", newSkinInfo, jobId);
+        } else {
+            textureStore.release(newSkinInfo);
+            return new UploadResult(false, "Failed to add skin to collection (full or duplicate?).", null, jobId);
+        }
+    }
+
+    HttpRequest buildMultipartRequest(byte[] fileData, String fileName, String boundary) {
+        String skinName = stripPngExtension(fileName);
 
         StringBuilder builder = new StringBuilder();
         builder.append("--").append(boundary).append("\r\n");
@@ -250,19 +446,21 @@ public class SkinManager {
         builder.append("Content-Disposition: form-data; name=\"file\"; filename=\"").append(fileName).append("\"\r\n");
         builder.append("Content-Type: image/png").append("\r\n\r\n");
 
-        byte[] metadataBytes = builder.toString().getBytes();
-        byte[] closingBoundary = ("\r\n--" + boundary + "--\r\n").getBytes();
+        byte[] metadataBytes = builder.toString().getBytes(StandardCharsets.UTF_8);
+        byte[] closingBoundary = ("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.UTF_8);
 
-        byte[] requestBody = new byte[metadataBytes.length + fileData.length + closingBoundary.length];
-        System.arraycopy(metadataBytes, 0, requestBody, 0, metadataBytes.length);
-        System.arraycopy(fileData, 0, requestBody, metadataBytes.length, fileData.length);
-        System.arraycopy(closingBoundary, 0, requestBody, metadataBytes.length + fileData.length, closingBoundary.length);
+        // Header, isi file, dan penutup dikirim berurutan tanpa menyalin isi file ke array baru
+        HttpRequest.BodyPublisher body = BodyPublishers.concat(
+                BodyPublishers.ofByteArray(metadataBytes),
+                BodyPublishers.ofByteArray(fileData),
+                BodyPublishers.ofByteArray(closingBoundary));
 
         HttpRequest.Builder requestBuilder = HttpRequest.newBuilder()
-                .uri(URI.create("https://api.mineskin.org/generate/upload"))
+                .uri(mineskinUploadUri)
+                .timeout(mineskinRequestTimeout)
                 .header("User-Agent", "SkinHub-Plugin/1.0")
                 .header("Content-Type", "multipart/form-data; boundary=" + boundary)
-                .POST(BodyPublishers.ofByteArray(requestBody));
+                .POST(body);
 
         if (mineskinApiKey != null && !mineskinApiKey.isEmpty()) {
             requestBuilder.header("Authorization", "Bearer " + mineskinApiKey);
@@ -280,15 +478,15 @@ public class SkinManager {
         return response.statusCode() + " (Body: " + response.body().substring(0, Math.min(response.body().length(), 100)) + ")";
     }
 
-    private void scheduleSave() {
-        Bukkit.getScheduler().runTaskAsynchronously(plugin, () -> {
-            if (!storage.saveData()) {
-                plugin.getLogger().warning("Failed to save skin data after modification.");
-            }
-        });
+    private void scheduleSave(UUID playerUuid) {
+        saveScheduler.requestSave(playerUuid);
     }
 
-    public record UploadResult(boolean success, String message, PlayerData.SkinInfo skinInfo) {}
+    /** Hasil upload; jobId terisi jika upload diproses lewat antrian MineSkin. */
+    public record UploadResult(boolean success, String message, PlayerData.SkinInfo skinInfo, String jobId) {}
+
+    /** Hasil persiapan pre-login; property null berarti pemain tidak punya skin aktif. */
+    private record PreparedSkin(SkinProperty property) {}
 
     private static class MineSkinResponse {
         String error;
@@ -0,0 +1,209 @@
+package com.zeroends.skinhub;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.google.gson.JsonParseException;
+
+import javax.imageio.ImageIO;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.HexFormat;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Merender thumbnail 2D dari texture skin: seluruh badan tampak depan (kepala, badan, tangan, kaki + layer luar)
+ * atau kepala saja. Hasil PNG di-cache per texture value dan tampilan, dengan ETag berupa hash texture
+ * sehingga tidak pernah berubah.
+ */
+public class SkinRenderer {
+
+    private static final int SCALE = 8;
+    private static final String TEXTURE_HOST = "textures.minecraft.net";
+
+    private final SkinHub plugin;
+    private final HttpClient httpClient;
+    private final Cache<ThumbnailKey, Thumbnail> thumbnails;
+
+    /** Tampilan thumbnail: badan penuh (16x32) atau kepala saja (8x8), sebelum diskalakan. */
+    public enum View { BODY, HEAD }
+
+    public SkinRenderer(SkinHub plugin) {
+        this.plugin = plugin;
+        // Redirect tidak diikuti: allow-list host hanya dicek pada URL awal
+        this.httpClient = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofSeconds(5))
+                .followRedirects(HttpClient.Redirect.NEVER)
+                .build();
+        int cacheSize = Math.max(1, plugin.getConfig().getInt("web.thumbnails.cache-size", 512));
+        this.thumbnails = CacheBuilder.newBuilder().maximumSize(cacheSize).build();
+    }
+
+    /** ETag untuk skin ini; bisa dihitung tanpa merender sehingga If-None-Match dijawab tanpa kerja. */
+    public static String etagOf(PlayerData.SkinInfo skin, View view) {
+        return "\"" + sha256(skin.texture()) + (view == View.HEAD ? "-head" : "") + "\"";
+    }
+
+    /**
+     * Mengambil thumbnail dari cache atau merender ulang (mengunduh texture dari server Mojang).
+     * Pemanggilan bersamaan untuk texture yang sama hanya merender sekali.
+     */
+    public Thumbnail thumbnail(PlayerData.SkinInfo skin, View view) throws IOException {
+        try {
+            return thumbnails.get(new ThumbnailKey(skin.texture(), view), () -> render(skin, view));
+        } catch (ExecutionException | UncheckedExecutionException e) {
+            if (e.getCause() instanceof IOException io) {
+                throw io;
+            }
+            throw new IOException("Failed to render thumbnail for " + skin.name(), e.getCause());
+        }
+    }
+
+    private Thumbnail render(PlayerData.SkinInfo skin, View view) throws IOException {
+        TextureRef ref = parseTexture(skin.texture());
+        BufferedImage texture = download(ref.url());
+        BufferedImage out = view == View.HEAD ? renderHead(texture) : renderBody(texture, ref.slim());
+
+        ByteArrayOutputStream png = new ByteArrayOutputStream(4096);
+        ImageIO.write(out, "png", png);
+        plugin.logDebug(() -> "Rendered " + view.name().toLowerCase() + " thumbnail for skin " + skin.name()
+                + " (" + png.size() + " bytes)");
+        return new Thumbnail(png.toByteArray(), etagOf(skin, view));
+    }
+
+    private static BufferedImage renderHead(BufferedImage texture) {
+        BufferedImage out = new BufferedImage(8 * SCALE, 8 * SCALE, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = out.createGraphics();
+        try {
+            // Wajah + topi (skin 64x32 juga punya layer topi)
+            draw(g, texture, 8, 8, 8, 8, 0, 0, false);
+            draw(g, texture, 40, 8, 8, 8, 0, 0, false);
+        } finally {
+            g.dispose();
+        }
+        return out;
+    }
+
+    private static BufferedImage renderBody(BufferedImage texture, boolean slim) {
+        boolean legacy = texture.getHeight() == 32;
+        int armWidth = slim ? 3 : 4;
+
+        BufferedImage out = new BufferedImage(16 * SCALE, 32 * SCALE, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = out.createGraphics();
+        try {
+            // Kepala + topi
+            draw(g, texture, 8, 8, 8, 8, 4, 0, false);
+            draw(g, texture, 40, 8, 8, 8, 4, 0, false);
+            // Badan
+            draw(g, texture, 20, 20, 8, 12, 4, 8, false);
+            // Tangan kanan (kiri dari sudut pandang penonton)
+            draw(g, texture, 44, 20, armWidth, 12, 4 - armWidth, 8, false);
+            // Kaki kanan
+            draw(g, texture, 4, 20, 4, 12, 4, 20, false);
+            if (legacy) {
+                // Skin 64x32 tidak punya sisi kiri: cerminkan sisi kanan
+                draw(g, texture, 44, 20, armWidth, 12, 12, 8, true);
+                draw(g, texture, 4, 20, 4, 12, 8, 20, true);
+            } else {
+                draw(g, texture, 36, 52, armWidth, 12, 12, 8, false);
+                draw(g, texture, 20, 52, 4, 12, 8, 20, false);
+                // Layer luar: jaket, lengan baju, celana
+                draw(g, texture, 20, 36, 8, 12, 4, 8, false);
+                draw(g, texture, 44, 36, armWidth, 12, 4 - armWidth, 8, false);
+                draw(g, texture, 52, 52, armWidth, 12, 12, 8, false);
+                draw(g, texture, 4, 36, 4, 12, 4, 20, false);
+                draw(g, texture, 4, 52, 4, 12, 8, 20, false);
+            }
+        } finally {
+            g.dispose();
+        }
+        return out;
+    }
+
+    /** Menyalin satu sisi depan bagian tubuh (koordinat texture 64x64) ke kanvas yang sudah diskalakan. */
+    private static void draw(Graphics2D g, BufferedImage src, int sx, int sy, int w, int h, int dx, int dy, boolean mirror) {
+        int x1 = dx * SCALE;
+        int x2 = (dx + w) * SCALE;
+        int y1 = dy * SCALE;
+        int y2 = (dy + h) * SCALE;
+        // Tanpa interpolasi: drawImage dengan skala memakai nearest neighbor secara default
+        g.drawImage(src, mirror ? x2 : x1, y1, mirror ? x1 : x2, y2, sx, sy, sx + w, sy + h, null);
+    }
+
+    private BufferedImage download(String url) throws IOException {
+        URI uri = URI.create(url);
+        // Hanya server texture Mojang, agar texture value yang dimanipulasi tidak bisa dipakai untuk SSRF
+        if (!TEXTURE_HOST.equalsIgnoreCase(uri.getHost())) {
+            throw new IOException("Refusing to fetch skin texture from " + uri.getHost());
+        }
+        HttpRequest request = HttpRequest.newBuilder(uri)
+                .timeout(Duration.ofSeconds(10))
+                .header("User-Agent", "SkinHub-Plugin/1.0")
+                .GET()
+                .build();
+        HttpResponse<byte[]> response;
+        try {
+            response = httpClient.send(request, HttpResponse.BodyHandlers.ofByteArray());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while fetching skin texture", e);
+        }
+        // Termasuk 3xx: redirect tidak diikuti
+        if (response.statusCode() != 200) {
+            throw new IOException("Skin texture fetch returned HTTP " + response.statusCode());
+        }
+        PngHeader header = PngHeader.parse(response.body());
+        if (header == null || header.width() != 64 || (header.height() != 64 && header.height() != 32)) {
+            throw new IOException("Unexpected skin texture format from " + url);
+        }
+        BufferedImage image = ImageIO.read(new ByteArrayInputStream(response.body()));
+        if (image == null) {
+            throw new IOException("Could not decode skin texture from " + url);
+        }
+        return image;
+    }
+
+    /** Membaca URL texture dan model (classic/slim) dari texture value base64. */
+    private static TextureRef parseTexture(String value) throws IOException {
+        try {
+            String json = new String(Base64.getDecoder().decode(value), StandardCharsets.UTF_8);
+            JsonObject skin = JsonParser.parseString(json).getAsJsonObject()
+                    .getAsJsonObject("textures")
+                    .getAsJsonObject("SKIN");
+            boolean slim = skin.has("metadata")
+                    && "slim".equals(skin.getAsJsonObject("metadata").get("model").getAsString());
+            return new TextureRef(skin.get("url").getAsString(), slim);
+        } catch (IllegalArgumentException | IllegalStateException | NullPointerException | JsonParseException e) {
+            throw new IOException("Malformed skin texture value", e);
+        }
+    }
+
+    private static String sha256(String value) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(value.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest, 0, 16);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    private record TextureRef(String url, boolean slim) {}
+
+    private record ThumbnailKey(String texture, View view) {}
+
+    public record Thumbnail(byte[] png, String etag) {}
+}
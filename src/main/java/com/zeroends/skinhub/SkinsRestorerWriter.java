@@ -0,0 +1,298 @@
+package com.zeroends.skinhub;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonIOException;
+import com.google.gson.JsonParseException;
+import net.skinsrestorer.api.SkinsRestorer;
+import net.skinsrestorer.api.property.SkinIdentifier;
+import net.skinsrestorer.api.property.SkinProperty;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Level;
+
+/**
+ * Write-behind di depan storage SkinsRestorer (setPlayerSkinData + removeSkinIdOfPlayer).
+ * Fingerprint property terakhir yang ditulis per pemain disimpan (skinsrestorer-sync.json),
+ * sehingga join ulang dengan skin yang sama cukup membaca storage SkinsRestorer tanpa menulis,
+ * juga setelah restart. Semua perubahan digabung per pemain dan diproses berurutan dalam batch
+ * di thread sendiri; keputusan melewati tulisan hanya diambil di sana, setelah tulisan sebelumnya selesai.
+ */
+public class SkinsRestorerWriter {
+
+    private final SkinHub plugin;
+    private final SkinsRestorer skinsRestorerApi;
+    private final Gson gson;
+    private final File file;
+    private final boolean skipUnchanged;
+    private final long batchDelayMillis;
+    private final int maxEntries;
+    private final ScheduledExecutorService flusher;
+
+    // Fingerprint yang sudah ditulis ke SkinsRestorer; LRU access-order, dijaga synchronized (pushed)
+    private final Map<UUID, String> pushed;
+    // Operasi yang menunggu batch berikutnya; operasi baru untuk pemain yang sama menggantikan yang lama
+    private final Map<UUID, PendingWrite> pending = new LinkedHashMap<>();
+    private final AtomicBoolean flushScheduled = new AtomicBoolean(false);
+    private volatile boolean dirty;
+
+    private final Metrics.Counter writes;
+    private final Metrics.Histogram batchLatency;
+
+    public SkinsRestorerWriter(SkinHub plugin, SkinsRestorer skinsRestorerApi, Gson gson) {
+        this.plugin = plugin;
+        this.skinsRestorerApi = skinsRestorerApi;
+        this.gson = gson;
+        this.file = new File(plugin.getDataFolder(), "skinsrestorer-sync.json");
+        this.skipUnchanged = plugin.getConfig().getBoolean("skinsrestorer.skip-unchanged", true);
+        this.batchDelayMillis = Math.max(0, plugin.getConfig().getLong("skinsrestorer.batch-delay-ms", 250));
+        this.maxEntries = Math.max(1, plugin.getConfig().getInt("skinsrestorer.max-tracked-players", 50000));
+        this.pushed = new LinkedHashMap<>(256, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<UUID, String> eldest) {
+                return size() > maxEntries;
+            }
+        };
+        Metrics metrics = plugin.getMetrics();
+        this.writes = metrics.counter("skinhub_skinsrestorer_writes_total",
+                "SkinsRestorer storage writes by outcome (written, removed, skipped, collapsed, failed).", "outcome");
+        this.batchLatency = metrics.histogram("skinhub_skinsrestorer_batch_seconds",
+                "Time to flush one batch of SkinsRestorer storage writes.", Metrics.LATENCY_BUCKETS);
+        metrics.gauge("skinhub_skinsrestorer_pending", "SkinsRestorer storage writes waiting for the next batch.",
+                this::pendingCount);
+        this.flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "SkinHub-SkinsRestorer");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * Meminta skin pemain di storage SkinsRestorer diganti dengan property ini (aman dari thread mana pun).
+     * Tulisan dilewati saat batch jika SkinsRestorer masih menyimpan property yang sama.
+     */
+    public void push(UUID playerUuid, String playerName, SkinProperty skinProperty) {
+        enqueue(playerUuid, new PendingWrite(playerName, skinProperty, fingerprint(skinProperty)));
+    }
+
+    /** Meminta skin ID pemain di SkinsRestorer dihapus (aman dari thread mana pun), mis. setelah skin dihapus. */
+    public void remove(UUID playerUuid) {
+        forget(playerUuid);
+        enqueue(playerUuid, new PendingWrite(null, null, null));
+    }
+
+    private void enqueue(UUID playerUuid, PendingWrite write) {
+        synchronized (pending) {
+            if (pending.put(playerUuid, write) != null) {
+                writes.inc("collapsed");
+                return;
+            }
+        }
+        if (flushScheduled.compareAndSet(false, true)) {
+            try {
+                flusher.schedule(this::flush, batchDelayMillis, TimeUnit.MILLISECONDS);
+            } catch (RejectedExecutionException e) {
+                flushScheduled.set(false);
+            }
+        }
+    }
+
+    public int pendingCount() {
+        synchronized (pending) {
+            return pending.size();
+        }
+    }
+
+    public void load() {
+        if (!skipUnchanged || !file.exists()) {
+            return;
+        }
+        try (BufferedReader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+            SyncFile loaded = gson.fromJson(reader, SyncFile.class);
+            if (loaded != null && loaded.players != null) {
+                synchronized (pushed) {
+                    // Disimpan dari yang paling lama dipakai, sehingga urutan LRU terjaga
+                    loaded.players.forEach((uuid, fingerprint) -> {
+                        try {
+                            pushed.put(UUID.fromString(uuid), fingerprint);
+                        } catch (IllegalArgumentException ignored) {
+                            // Entri rusak dilewati; pemain itu akan ditulis ulang saat join berikutnya
+                        }
+                    });
+                }
+            }
+            plugin.logDebug(() -> "Loaded " + trackedCount() + " SkinsRestorer sync entries.");
+        } catch (IOException | JsonParseException e) {
+            plugin.getLogger().warning("Could not read skinsrestorer-sync.json, all players will be rewritten: " + e.getMessage());
+        }
+    }
+
+    /** Menyimpan fingerprint ke disk jika ada tulisan baru sejak penyimpanan terakhir. */
+    public void saveIfDirty() {
+        if (!dirty || !skipUnchanged) {
+            return;
+        }
+        dirty = false;
+        SyncFile out = new SyncFile();
+        out.players = new LinkedHashMap<>();
+        synchronized (pushed) {
+            pushed.forEach((uuid, fingerprint) -> out.players.put(uuid.toString(), fingerprint));
+        }
+        try {
+            SnapshotFile.write(file.toPath(), 0, false, stream -> {
+                Writer writer = new OutputStreamWriter(stream, StandardCharsets.UTF_8);
+                gson.toJson(out, writer);
+                writer.flush();
+            });
+        } catch (IOException | JsonIOException e) {
+            dirty = true;
+            plugin.getLogger().warning("Could not save skinsrestorer-sync.json: " + e.getMessage());
+        }
+    }
+
+    /** Menulis batch terakhir di thread flusher lalu menyimpan fingerprint. Dipanggil dari onDisable. */
+    public void shutdown() {
+        try {
+            flusher.submit(this::flush).get(30, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException | TimeoutException | RejectedExecutionException e) {
+            plugin.getLogger().log(Level.WARNING, "Final SkinsRestorer batch failed.", e);
+        } finally {
+            flusher.shutdownNow();
+        }
+        saveIfDirty();
+    }
+
+    private void flush() {
+        // Reset sebelum menulis agar push yang datang selama batch menjadwalkan batch berikutnya
+        flushScheduled.set(false);
+        List<Map.Entry<UUID, PendingWrite>> batch;
+        synchronized (pending) {
+            if (pending.isEmpty()) {
+                return;
+            }
+            batch = new ArrayList<>(pending.entrySet());
+            pending.clear();
+        }
+        long started = System.nanoTime();
+        for (Map.Entry<UUID, PendingWrite> entry : batch) {
+            UUID playerUuid = entry.getKey();
+            PendingWrite write = entry.getValue();
+            try {
+                if (write.property() == null) {
+                    skinsRestorerApi.getPlayerStorage().removeSkinIdOfPlayer(playerUuid);
+                    forget(playerUuid);
+                    writes.inc("removed");
+                    continue;
+                }
+                if (isPushed(playerUuid, write.fingerprint()) && isStored(playerUuid, write.fingerprint())) {
+                    writes.inc("skipped");
+                    continue;
+                }
+                skinsRestorerApi.getSkinStorage().setPlayerSkinData(
+                        playerUuid,
+                        write.playerName() != null ? write.playerName() : "Unknown",
+                        write.property(),
+                        System.currentTimeMillis()
+                );
+                skinsRestorerApi.getPlayerStorage().removeSkinIdOfPlayer(playerUuid);
+                if (skipUnchanged) {
+                    synchronized (pushed) {
+                        pushed.put(playerUuid, write.fingerprint());
+                    }
+                    dirty = true;
+                }
+                writes.inc("written");
+            } catch (RuntimeException e) {
+                // Fingerprint dibuang, jadi push berikutnya untuk pemain ini pasti menulis ulang
+                forget(playerUuid);
+                writes.inc("failed");
+                plugin.getLogger().log(Level.WARNING, "Failed to write skin of " + playerUuid + " to SkinsRestorer", e);
+            }
+        }
+        batchLatency.observeSince(started);
+        plugin.logDebug(() -> "Flushed SkinsRestorer batch of " + batch.size() + " player(s).");
+    }
+
+    private boolean isPushed(UUID playerUuid, String fingerprint) {
+        if (!skipUnchanged) {
+            return false;
+        }
+        synchronized (pushed) {
+            return fingerprint.equals(pushed.get(playerUuid));
+        }
+    }
+
+    // Cache bisa basi (server lain atau command SkinsRestorer), jadi cocokkan dengan isi storage SkinsRestorer
+    private boolean isStored(UUID playerUuid, String fingerprint) {
+        if (skinsRestorerApi.getPlayerStorage().getSkinIdOfPlayer(playerUuid).isPresent()) {
+            return false;
+        }
+        Optional<SkinProperty> stored = skinsRestorerApi.getSkinStorage()
+                .getSkinDataByIdentifier(SkinIdentifier.ofPlayer(playerUuid));
+        if (stored.isPresent() && fingerprint.equals(fingerprint(stored.get()))) {
+            return true;
+        }
+        forget(playerUuid);
+        return false;
+    }
+
+    private void forget(UUID playerUuid) {
+        if (!skipUnchanged) {
+            return;
+        }
+        synchronized (pushed) {
+            if (pushed.remove(playerUuid) != null) {
+                dirty = true;
+            }
+        }
+    }
+
+    private int trackedCount() {
+        synchronized (pushed) {
+            return pushed.size();
+        }
+    }
+
+    // SHA-256 (dipotong 128 bit) dari value + signature; cukup untuk membedakan skin tanpa menyimpan texture
+    private static String fingerprint(SkinProperty skinProperty) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(skinProperty.getValue().getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update(skinProperty.getSignature().getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest.digest(), 0, 16);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    // property null = hapus skin ID pemain
+    private record PendingWrite(String playerName, SkinProperty property, String fingerprint) {}
+
+    private static class SyncFile {
+        Map<String, String> players;
+    }
+}
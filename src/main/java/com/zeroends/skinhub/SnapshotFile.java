@@ -0,0 +1,174 @@
+package com.zeroends.skinhub;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileSystemException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Penulisan snapshot yang aman dari crash.
+ * Data di-stream ke file .tmp (opsional gzip), di-fsync, lalu di-rename atomik menggantikan file lama,
+ * sehingga file utama selalu berisi snapshot lama atau baru yang utuh, tidak pernah setengah tertulis.
+ * Backup dirotasi lewat rename (.bak, .bak.2, ...) tanpa menyalin isi file.
+ * Saat membaca, gzip dikenali otomatis dari header file.
+ */
+public class SnapshotFile {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int GZIP_MAGIC_1 = 0x1f;
+    private static final int GZIP_MAGIC_2 = 0x8b;
+
+    /** Isi snapshot; stream tidak boleh ditutup oleh writer. */
+    @FunctionalInterface
+    public interface Writer {
+        void write(OutputStream out) throws IOException;
+    }
+
+    private SnapshotFile() {}
+
+    /**
+     * Menulis snapshot ke target lewat file sementara + fsync + rename atomik.
+     * @param backups jumlah backup yang disimpan (0 = tanpa backup).
+     * @param gzip true untuk mengompres snapshot dengan gzip.
+     * @return ukuran file yang ditulis di disk (byte).
+     */
+    public static long write(Path target, int backups, boolean gzip, Writer writer) throws IOException {
+        Path tmp = target.resolveSibling(target.getFileName() + ".tmp");
+        long bytes;
+        try (FileChannel channel = FileChannel.open(tmp,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+             OutputStream out = open(channel, gzip)) {
+            writer.write(out);
+            if (out instanceof GZIPOutputStream compressed) {
+                compressed.finish();
+            }
+            out.flush();
+            channel.force(true);
+            bytes = channel.size();
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(tmp);
+            throw e;
+        }
+        if (backups > 0 && Files.exists(target)) {
+            rotateBackups(target, backups);
+        }
+        move(tmp, target);
+        syncDirectory(target.getParent());
+        return bytes;
+    }
+
+    /** Membuka snapshot untuk dibaca; file gzip dikenali dari header dan didekompres otomatis. */
+    public static InputStream openInput(Path path) throws IOException {
+        BufferedInputStream in = new BufferedInputStream(Files.newInputStream(path), BUFFER_SIZE);
+        try {
+            in.mark(2);
+            int b1 = in.read();
+            int b2 = in.read();
+            in.reset();
+            if (b1 == GZIP_MAGIC_1 && b2 == GZIP_MAGIC_2) {
+                return new GZIPInputStream(in, BUFFER_SIZE);
+            }
+            return in;
+        } catch (IOException e) {
+            in.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Membuka snapshot sebagai channel; file biasa dibaca langsung lewat FileChannel, file gzip
+     * didekompres lewat stream. Pembaca mengisi buffernya sendiri, jadi channel tidak di-buffer lagi.
+     */
+    public static ReadableByteChannel openChannel(Path path) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            ByteBuffer header = ByteBuffer.allocate(2);
+            while (header.hasRemaining() && channel.read(header) >= 0) {
+                // baca sampai 2 byte header atau EOF
+            }
+            channel.position(0);
+            if (header.position() == 2 && (header.get(0) & 0xFF) == GZIP_MAGIC_1 && (header.get(1) & 0xFF) == GZIP_MAGIC_2) {
+                return Channels.newChannel(new GZIPInputStream(Channels.newInputStream(channel), BUFFER_SIZE));
+            }
+            return channel;
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /** @return file backup yang ada untuk target, dari yang terbaru (.bak) ke yang terlama. */
+    public static List<Path> backups(Path target, int backups) {
+        List<Path> existing = new ArrayList<>();
+        for (int i = 1; i <= Math.max(1, backups); i++) {
+            Path backup = backupPath(target, i);
+            if (Files.exists(backup)) {
+                existing.add(backup);
+            }
+        }
+        return existing;
+    }
+
+    private static OutputStream open(FileChannel channel, boolean gzip) throws IOException {
+        OutputStream out = new BufferedOutputStream(Channels.newOutputStream(channel), BUFFER_SIZE);
+        return gzip ? new GZIPOutputStream(out, BUFFER_SIZE) : out;
+    }
+
+    // .bak -> .bak.2 -> ... -> .bak.N (yang terlama dibuang), lalu snapshot saat ini menjadi .bak
+    private static void rotateBackups(Path target, int backups) throws IOException {
+        Files.deleteIfExists(backupPath(target, backups));
+        for (int i = backups - 1; i >= 1; i--) {
+            Path from = backupPath(target, i);
+            if (Files.exists(from)) {
+                move(from, backupPath(target, i + 1));
+            }
+        }
+        Path backup = backupPath(target, 1);
+        try {
+            // Hard link: file utama tetap ada sampai rename atomik di bawah menggantikannya
+            Files.createLink(backup, target);
+        } catch (UnsupportedOperationException | FileSystemException e) {
+            // Tanpa hard link ada jeda singkat tanpa file utama; saat load, backup dipakai jika file utama hilang
+            move(target, backup);
+        }
+    }
+
+    private static Path backupPath(Path target, int index) {
+        String name = target.getFileName() + ".bak" + (index > 1 ? "." + index : "");
+        return target.resolveSibling(name);
+    }
+
+    private static void move(Path from, Path to) throws IOException {
+        try {
+            Files.move(from, to, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(from, to, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    // Agar rename ikut bertahan setelah crash; tidak didukung di semua OS (mis. Windows), jadi diabaikan jika gagal
+    private static void syncDirectory(Path dir) {
+        if (dir == null) {
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(dir, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException ignored) {
+        }
+    }
+}
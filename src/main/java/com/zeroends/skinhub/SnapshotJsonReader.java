@@ -0,0 +1,187 @@
+package com.zeroends.skinhub;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Pembaca skins.json bertahap lewat JsonReader (gzip dikenali otomatis), satu entri pemain per langkah.
+ * Dengan worker, token tetap dibaca berurutan di thread pemanggil, sedangkan binding ke PlayerData
+ * dikerjakan paralel per batch langsung ke map hasil. Jumlah batch yang sedang diproses dibatasi,
+ * sehingga memori sementara tidak bergantung pada ukuran file.
+ */
+public class SnapshotJsonReader {
+
+    private static final int BATCH_SIZE = 256;
+
+    private final Gson gson;
+    private final int workers;
+
+    /** @param workers jumlah thread binding; 0 = bind langsung di thread pemanggil. */
+    public SnapshotJsonReader(Gson gson, int workers) {
+        this.gson = gson;
+        this.workers = Math.max(0, workers);
+    }
+
+    /** Jumlah worker default: sisakan satu core untuk thread pembaca (dan server), maksimal 4. */
+    public static int defaultWorkers() {
+        return Math.min(4, Runtime.getRuntime().availableProcessors() - 1);
+    }
+
+    /** @return data pemain, atau null jika file kosong atau berisi null. */
+    public ConcurrentMap<UUID, PlayerData> read(Path path) throws IOException {
+        try (JsonReader reader = new JsonReader(new InputStreamReader(SnapshotFile.openInput(path), StandardCharsets.UTF_8))) {
+            JsonToken first;
+            try {
+                first = reader.peek();
+            } catch (EOFException e) {
+                return null;
+            }
+            if (first == JsonToken.NULL) {
+                return null;
+            }
+            ConcurrentMap<UUID, PlayerData> result = new ConcurrentHashMap<>();
+            if (workers == 0) {
+                // Satu core: bind langsung dari stream tanpa pohon JSON perantara
+                readEntries(reader, path, (uuid, in) -> {
+                    PlayerData data = gson.fromJson(in, PlayerData.class);
+                    if (data != null) {
+                        result.put(uuid, data);
+                    }
+                });
+                return result;
+            }
+            try (ParallelBinder binder = new ParallelBinder(result)) {
+                readEntries(reader, path, (uuid, in) -> binder.add(uuid, JsonParser.parseReader(in)));
+                binder.finish(path);
+            }
+            return result;
+        } catch (JsonParseException | IllegalStateException e) {
+            throw new IOException("Malformed " + path.getFileName() + ": " + e.getMessage(), e);
+        }
+    }
+
+    private static void readEntries(JsonReader reader, Path path, EntryReader entryReader) throws IOException {
+        reader.beginObject();
+        while (reader.hasNext()) {
+            // Load dibatalkan saat plugin dimatikan; baca file dari disk tidak berhenti sendiri saat di-interrupt
+            if (Thread.currentThread().isInterrupted()) {
+                throw new InterruptedIOException("Interrupted while loading skin data");
+            }
+            String name = reader.nextName();
+            UUID uuid;
+            try {
+                uuid = UUID.fromString(name);
+            } catch (IllegalArgumentException e) {
+                throw new IOException("Invalid player UUID '" + name + "' in " + path.getFileName());
+            }
+            if (reader.peek() == JsonToken.NULL) {
+                reader.nextNull();
+                continue;
+            }
+            entryReader.read(uuid, reader);
+        }
+        reader.endObject();
+    }
+
+    /**
+     * Mengumpulkan entri (sudah berupa pohon JSON) per batch dan mem-bind-nya di thread worker.
+     * Dua batch per worker boleh berjalan: worker tidak menunggu pembaca, pembaca tidak menumpuk batch.
+     */
+    private final class ParallelBinder implements AutoCloseable {
+        private final ConcurrentMap<UUID, PlayerData> result;
+        private final ExecutorService pool = Executors.newFixedThreadPool(workers,
+                Thread.ofPlatform().name("SkinHub-Loader-", 0).daemon().factory());
+        private final int maxInFlight = workers * 2;
+        private final Semaphore inFlight = new Semaphore(maxInFlight);
+        private final AtomicReference<RuntimeException> failure = new AtomicReference<>();
+        private List<Entry> batch = new ArrayList<>(BATCH_SIZE);
+
+        ParallelBinder(ConcurrentMap<UUID, PlayerData> result) {
+            this.result = result;
+        }
+
+        void add(UUID uuid, JsonElement json) throws IOException {
+            batch.add(new Entry(uuid, json));
+            if (batch.size() == BATCH_SIZE) {
+                submit();
+            }
+        }
+
+        /** Menunggu semua batch selesai; melempar error binding pertama jika ada. */
+        void finish(Path path) throws IOException {
+            if (!batch.isEmpty()) {
+                submit();
+            }
+            acquire(maxInFlight);
+            RuntimeException error = failure.get();
+            if (error != null) {
+                throw new IOException("Malformed player entry in " + path.getFileName() + ": " + error.getMessage(), error);
+            }
+        }
+
+        private void submit() throws IOException {
+            List<Entry> entries = batch;
+            batch = new ArrayList<>(BATCH_SIZE);
+            acquire(1);
+            if (failure.get() != null) {
+                inFlight.release();
+                return;
+            }
+            pool.execute(() -> {
+                try {
+                    for (Entry entry : entries) {
+                        PlayerData data = gson.fromJson(entry.json(), PlayerData.class);
+                        if (data != null) {
+                            result.put(entry.uuid(), data);
+                        }
+                    }
+                } catch (RuntimeException e) {
+                    failure.compareAndSet(null, e);
+                } finally {
+                    inFlight.release();
+                }
+            });
+        }
+
+        private void acquire(int permits) throws InterruptedIOException {
+            try {
+                inFlight.acquire(permits);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while loading skin data");
+            }
+        }
+
+        @Override
+        public void close() {
+            pool.shutdownNow();
+        }
+    }
+
+    @FunctionalInterface
+    private interface EntryReader {
+        void read(UUID uuid, JsonReader reader) throws IOException;
+    }
+
+    private record Entry(UUID uuid, JsonElement json) {}
+}
@@ -0,0 +1,764 @@
+package com.zeroends.skinhub;
+
+import com.google.gson.Gson;
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+
+import java.io.File;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.UnaryOperator;
+import java.util.logging.Level;
+
+/**
+ * Storage di database SQL embedded (H2) dengan tabel terindeks untuk pemain, skin dan skin aktif.
+ * Data pemain dibaca per pemain saat pertama diakses (dan dibaca ulang saat pre-login, agar perubahan
+ * dari server lain yang memakai database yang sama terlihat); save hanya menulis baris yang berubah.
+ * Kolom version di skinhub_players menjadi cek optimistic concurrency: jika server lain menulis pemain
+ * yang sama sejak dibaca, data dibaca ulang, perubahan lokal digabungkan lalu save diulang.
+ */
+public class SqlStorage implements Storage {
+
+    private static final String[] SCHEMA = {
+            "CREATE TABLE IF NOT EXISTS skinhub_players ("
+                    + "uuid UUID PRIMARY KEY, "
+                    + "updated_at BIGINT NOT NULL, "
+                    + "version BIGINT NOT NULL DEFAULT 0)",
+            // Database dari versi sebelum kolom version
+            "ALTER TABLE skinhub_players ADD COLUMN IF NOT EXISTS version BIGINT NOT NULL DEFAULT 0",
+            "CREATE TABLE IF NOT EXISTS skinhub_skins ("
+                    + "uuid UUID NOT NULL, "
+                    + "skin_id BIGINT NOT NULL, "
+                    + "name VARCHAR NOT NULL, "
+                    + "texture VARCHAR NOT NULL, "
+                    + "signature VARCHAR, "
+                    + "PRIMARY KEY (uuid, skin_id))",
+            "CREATE TABLE IF NOT EXISTS skinhub_active_skins ("
+                    + "uuid UUID PRIMARY KEY, "
+                    + "skin_id BIGINT NOT NULL)",
+            // Token sesi signed yang di-logout, dibagi semua server yang memakai database ini
+            "CREATE TABLE IF NOT EXISTS skinhub_revoked_sessions ("
+                    + "token_id BIGINT PRIMARY KEY, "
+                    + "expires_at BIGINT NOT NULL)"
+    };
+
+    // Satu round trip per pemain: primary key skinhub_players + prefix primary key skinhub_skins
+    private static final String SELECT_PLAYER =
+            "SELECT p.version, a.skin_id AS active_id, s.skin_id, s.name, s.texture, s.signature "
+                    + "FROM skinhub_players p "
+                    + "LEFT JOIN skinhub_active_skins a ON a.uuid = p.uuid "
+                    + "LEFT JOIN skinhub_skins s ON s.uuid = p.uuid "
+                    + "WHERE p.uuid = ? ORDER BY s.skin_id";
+    private static final String SELECT_ALL =
+            "SELECT p.uuid, a.skin_id AS active_id, s.skin_id, s.name, s.texture, s.signature "
+                    + "FROM skinhub_players p "
+                    + "LEFT JOIN skinhub_active_skins a ON a.uuid = p.uuid "
+                    + "LEFT JOIN skinhub_skins s ON s.uuid = p.uuid "
+                    + "ORDER BY p.uuid, s.skin_id";
+    // Klaim baris pemain sebelum menulis; 0 baris berarti server lain sudah menulis sejak data dibaca
+    private static final String INSERT_PLAYER =
+            "INSERT INTO skinhub_players (uuid, updated_at, version) "
+                    + "SELECT ?, ?, 1 WHERE NOT EXISTS (SELECT 1 FROM skinhub_players WHERE uuid = ?)";
+    private static final String CLAIM_PLAYER =
+            "UPDATE skinhub_players SET version = version + 1, updated_at = ? WHERE uuid = ? AND version = ?";
+    private static final String DELETE_PLAYER = "DELETE FROM skinhub_players WHERE uuid = ?";
+    private static final String UPSERT_SKIN =
+            "MERGE INTO skinhub_skins (uuid, skin_id, name, texture, signature) KEY (uuid, skin_id) VALUES (?, ?, ?, ?, ?)";
+    private static final String DELETE_SKIN = "DELETE FROM skinhub_skins WHERE uuid = ? AND skin_id = ?";
+    private static final String UPSERT_ACTIVE = "MERGE INTO skinhub_active_skins (uuid, skin_id) KEY (uuid) VALUES (?, ?)";
+    private static final String DELETE_ACTIVE = "DELETE FROM skinhub_active_skins WHERE uuid = ?";
+    private static final String REVOKE_SESSION =
+            "MERGE INTO skinhub_revoked_sessions (token_id, expires_at) KEY (token_id) VALUES (?, ?)";
+    private static final String SELECT_REVOKED = "SELECT token_id, expires_at FROM skinhub_revoked_sessions WHERE expires_at > ?";
+    private static final String PURGE_REVOKED = "DELETE FROM skinhub_revoked_sessions WHERE expires_at < ?";
+    // Save diulang langsung untuk pemain yang bentrok, sisanya menunggu save berikutnya
+    private static final int MAX_CONFLICT_RETRIES = 3;
+
+    private final SkinHub plugin;
+    private final Gson gson;
+    private final String jdbcUrl;
+    private final String username;
+    private final String password;
+    private final int poolSize;
+    private HikariDataSource dataSource;
+
+    private final ConcurrentMap<UUID, PlayerData> playerDataMap = new ConcurrentHashMap<>();
+    // Baris yang sudah ada di database per pemain, untuk menghitung perubahan saat save
+    private final ConcurrentMap<UUID, Persisted> persisted = new ConcurrentHashMap<>();
+    private final Set<UUID> dirtyPlayers = ConcurrentHashMap.newKeySet();
+    private final Object writeLock = new Object();
+
+    private final int maxCachedPlayers;
+    private final long idleEvictMillis;
+    private final ConcurrentMap<UUID, Long> lastAccess = new ConcurrentHashMap<>();
+    private final Set<UUID> onlinePlayers = ConcurrentHashMap.newKeySet();
+
+    private final TextureStore textureStore = new TextureStore();
+    private volatile boolean revokedSessionsFailing;
+
+    private final Metrics.Histogram saveLatency;
+    private final Metrics.Histogram loadLatency;
+    private final Metrics.Counter rowsWritten;
+
+    public SqlStorage(SkinHub plugin, Gson gson) {
+        this.plugin = plugin;
+        this.gson = gson;
+        String url = plugin.getConfig().getString("storage.sql.url", "");
+        this.jdbcUrl = url == null || url.isBlank()
+                ? "jdbc:h2:file:" + new File(plugin.getDataFolder(), "skinhub").getAbsolutePath() + ";AUTO_SERVER=TRUE"
+                : url;
+        this.username = plugin.getConfig().getString("storage.sql.username", "sa");
+        this.password = plugin.getConfig().getString("storage.sql.password", "");
+        this.poolSize = Math.max(1, plugin.getConfig().getInt("storage.sql.pool-size", 4));
+        this.maxCachedPlayers = Math.max(16, plugin.getConfig().getInt("storage.cache.max-players", 5000));
+        this.idleEvictMillis = Math.max(0, plugin.getConfig().getLong("storage.cache.idle-seconds", 300)) * 1000L;
+
+        Metrics metrics = plugin.getMetrics();
+        this.saveLatency = metrics.histogram("skinhub_storage_save_seconds",
+                "Time spent persisting skin data", Metrics.LATENCY_BUCKETS, "operation");
+        this.loadLatency = metrics.histogram("skinhub_storage_load_seconds",
+                "Time spent loading one player's skin data", Metrics.LATENCY_BUCKETS);
+        this.rowsWritten = metrics.counter("skinhub_storage_sql_rows_total",
+                "Rows changed by SQL storage saves", "table", "operation");
+    }
+
+    /**
+     * Membuka pool koneksi dan membuat tabel jika belum ada.
+     * Jika database masih kosong, data dari storage file (layout single) diimpor sekali.
+     */
+    @Override
+    public boolean loadData() {
+        HikariConfig config = new HikariConfig();
+        config.setPoolName("SkinHub-SQL");
+        config.setJdbcUrl(jdbcUrl);
+        config.setUsername(username);
+        config.setPassword(password);
+        config.setMaximumPoolSize(poolSize);
+        if (jdbcUrl.startsWith("jdbc:h2:")) {
+            config.setDriverClassName("org.h2.Driver");
+        }
+        try {
+            this.dataSource = new HikariDataSource(config);
+            try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement()) {
+                for (String ddl : SCHEMA) {
+                    statement.execute(ddl);
+                }
+            }
+            plugin.logDebug(() -> "Connected to SQL storage at " + jdbcUrl);
+            boolean imported = importFileStorage();
+            // Didaftarkan setelah impor, karena FileStorage sementara untuk impor memakai nama gauge yang sama
+            Metrics metrics = plugin.getMetrics();
+            metrics.gauge("skinhub_storage_cached_players", "Players whose skin data is held in memory", playerDataMap::size);
+            metrics.gauge("skinhub_storage_dirty_players", "Players with changes not yet saved", dirtyPlayers::size);
+            return imported;
+        } catch (SQLException | RuntimeException e) {
+            plugin.getLogger().log(Level.SEVERE, "Could not open SQL storage at " + jdbcUrl, e);
+            return false;
+        }
+    }
+
+    /** Menulis baris yang berubah untuk semua pemain dirty dalam satu transaksi dengan statement batch. */
+    @Override
+    public boolean saveData() {
+        long start = System.nanoTime();
+        synchronized (writeLock) {
+            int conflicts = flushDirty();
+            for (int retry = 0; conflicts > 0 && retry < MAX_CONFLICT_RETRIES; retry++) {
+                conflicts = flushDirty();
+            }
+            boolean ok = conflicts >= 0;
+            saveLatency.observeSince(start, "sql");
+            trimCache();
+            return ok;
+        }
+    }
+
+    @Override
+    public boolean needsCompaction() {
+        return false;
+    }
+
+    /** Tidak ada yang perlu dipadatkan; sama dengan save biasa. */
+    @Override
+    public boolean compact() {
+        return saveData();
+    }
+
+    @Override
+    public boolean exportJson(File target) {
+        Map<UUID, List<PlayerData.SkinInfo>> skins = new HashMap<>();
+        Map<UUID, Long> active = new HashMap<>();
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement select = connection.prepareStatement(SELECT_ALL);
+             ResultSet rs = select.executeQuery()) {
+            while (rs.next()) {
+                UUID uuid = rs.getObject("uuid", UUID.class);
+                List<PlayerData.SkinInfo> slots = skins.get(uuid);
+                if (slots == null) {
+                    slots = new ArrayList<>();
+                    skins.put(uuid, slots);
+                    active.put(uuid, readActiveId(rs));
+                }
+                readSkin(rs, slots);
+            }
+            Map<UUID, PlayerData> all = new HashMap<>();
+            skins.forEach((uuid, slots) -> all.put(uuid, new PlayerData(slots, active.get(uuid))));
+            SkinDataCodec.exportJson(all, target.toPath(), gson);
+            return true;
+        } catch (SQLException | IOException e) {
+            plugin.getLogger().severe("Could not export skin data to " + target.getName() + ": " + e.getMessage());
+            return false;
+        }
+    }
+
+    @Override
+    public void markDirty(UUID uuid) {
+        dirtyPlayers.add(uuid);
+    }
+
+    @Override
+    public void setOnline(UUID uuid, boolean online) {
+        if (online) {
+            onlinePlayers.add(uuid);
+            lastAccess.put(uuid, System.currentTimeMillis());
+        } else {
+            onlinePlayers.remove(uuid);
+        }
+    }
+
+    /**
+     * Membaca ulang data pemain dari database (dipanggil saat pre-login), agar perubahan yang dibuat
+     * server lain sejak data ini di-cache ikut terlihat. Perubahan yang belum tersimpan diterapkan ulang
+     * di atas data terbaru, sama seperti saat konflik.
+     */
+    @Override
+    public void preload(UUID uuid) {
+        PlayerData cached = playerDataMap.get(uuid);
+        if (cached == null) {
+            findPlayerData(uuid);
+            return;
+        }
+        Loaded fresh;
+        try {
+            fresh = loadPlayer(uuid);
+        } catch (SQLException e) {
+            plugin.getLogger().severe("Could not reload skin data for " + uuid + ": " + e.getMessage());
+            return;
+        }
+        lastAccess.put(uuid, System.currentTimeMillis());
+        // Dipasang di bawah writeLock: tidak ada save yang sedang berjalan, jadi dirty set dan persisted konsisten
+        synchronized (writeLock) {
+            Persisted base = persisted.getOrDefault(uuid, Persisted.EMPTY);
+            boolean newer = fresh.data() == null ? base.version() > 0 : fresh.state().version() > base.version();
+            if (!newer) {
+                if (fresh.data() != null) {
+                    textureStore.releaseAll(fresh.data());
+                }
+                return;
+            }
+            playerDataMap.compute(uuid, (k, current) -> {
+                publish(k, fresh.state());
+                if (current == null || (current == cached && !dirtyPlayers.contains(k))) {
+                    if (current != null) {
+                        textureStore.releaseAll(current);
+                    }
+                    return fresh.data();
+                }
+                // Berubah sejak dibaca; perubahan lokal digabung dengan data terbaru dan ditulis pada save berikutnya
+                PlayerData latest = fresh.data() != null ? fresh.data() : new PlayerData();
+                PlayerData merged = textureStore.acquireAll(merge(base, current, latest));
+                textureStore.releaseAll(current);
+                textureStore.releaseAll(latest);
+                markDirty(k);
+                return merged;
+            });
+        }
+    }
+
+    /** Sekaligus membuang catatan token yang sudah expire (logout jarang, jadi tabel tetap kecil). */
+    @Override
+    public void revokeSession(long tokenId, long expiresAtMillis) {
+        if (dataSource == null) {
+            return;
+        }
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement revoke = connection.prepareStatement(REVOKE_SESSION);
+             PreparedStatement purge = connection.prepareStatement(PURGE_REVOKED)) {
+            revoke.setLong(1, tokenId);
+            revoke.setLong(2, expiresAtMillis);
+            revoke.executeUpdate();
+            purge.setLong(1, System.currentTimeMillis());
+            purge.executeUpdate();
+        } catch (SQLException e) {
+            plugin.getLogger().warning("Could not record session logout in SQL storage: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public Map<Long, Long> loadRevokedSessions() {
+        if (dataSource == null) {
+            return null;
+        }
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement select = connection.prepareStatement(SELECT_REVOKED)) {
+            select.setLong(1, System.currentTimeMillis());
+            Map<Long, Long> revoked = new HashMap<>();
+            try (ResultSet rs = select.executeQuery()) {
+                while (rs.next()) {
+                    revoked.put(rs.getLong(1), rs.getLong(2));
+                }
+            }
+            revokedSessionsFailing = false;
+            return revoked;
+        } catch (SQLException e) {
+            // Dipanggil berkala; peringatan hanya sekali per gangguan agar log tidak banjir
+            if (!revokedSessionsFailing) {
+                revokedSessionsFailing = true;
+                plugin.getLogger().warning("Could not read session logouts from SQL storage: " + e.getMessage());
+            }
+            return null;
+        }
+    }
+
+    @Override
+    public void close() {
+        if (dataSource != null) {
+            dataSource.close();
+        }
+    }
+
+    /** Sama seperti layout sharded: hanya pemain offline, bersih, dan idle yang dibuang dari cache. */
+    @Override
+    public void trimCache() {
+        int excess = playerDataMap.size() - maxCachedPlayers;
+        if (excess <= 0) {
+            return;
+        }
+        long cutoff = System.currentTimeMillis() - idleEvictMillis;
+        List<Map.Entry<UUID, Long>> candidates = new ArrayList<>();
+        for (Map.Entry<UUID, Long> entry : lastAccess.entrySet()) {
+            UUID uuid = entry.getKey();
+            if (entry.getValue() <= cutoff && !onlinePlayers.contains(uuid) && !dirtyPlayers.contains(uuid)) {
+                candidates.add(entry);
+            }
+        }
+        candidates.sort(Map.Entry.comparingByValue());
+        int evicted = 0;
+        for (Map.Entry<UUID, Long> entry : candidates) {
+            if (evicted >= excess) {
+                break;
+            }
+            UUID uuid = entry.getKey();
+            if (!lastAccess.remove(uuid, entry.getValue())) {
+                continue;
+            }
+            boolean[] removed = {false};
+            playerDataMap.compute(uuid, (k, v) -> {
+                if (v == null || lastAccess.containsKey(k) || dirtyPlayers.contains(k)) {
+                    return v;
+                }
+                textureStore.releaseAll(v);
+                persisted.remove(k);
+                removed[0] = true;
+                return null;
+            });
+            if (removed[0]) {
+                evicted++;
+            }
+        }
+        if (evicted > 0) {
+            int evictedCount = evicted;
+            plugin.logDebug(() -> "Evicted " + evictedCount + " idle player data entries from cache.");
+        }
+    }
+
+    @Override
+    public TextureStore getTextureStore() {
+        return textureStore;
+    }
+
+    @Override
+    public PlayerData getPlayerData(UUID uuid) {
+        PlayerData data = findPlayerData(uuid);
+        if (data != null) {
+            return data;
+        }
+        lastAccess.put(uuid, System.currentTimeMillis());
+        return playerDataMap.computeIfAbsent(uuid, k -> new PlayerData());
+    }
+
+    /**
+     * Selain compare-and-swap, pemain ditandai dirty sebelum snapshot baru dipasang, sehingga
+     * {@link #preload} yang berjalan bersamaan tidak menimpanya dengan data lama dari database.
+     */
+    @Override
+    public PlayerData update(UUID uuid, UnaryOperator<PlayerData> change) {
+        while (true) {
+            PlayerData current = getPlayerData(uuid);
+            PlayerData next = change.apply(current);
+            if (next == current) {
+                return next;
+            }
+            markDirty(uuid);
+            // Compare-and-swap berdasarkan identitas snapshot (PlayerData tidak meng-override equals)
+            if (playerDataMap.replace(uuid, current, next)) {
+                // Ditandai lagi: save yang berjalan di antaranya bisa sudah mengosongkan dirty set
+                markDirty(uuid);
+                return next;
+            }
+        }
+    }
+
+    @Override
+    public PlayerData findPlayerData(UUID uuid) {
+        PlayerData data = playerDataMap.get(uuid);
+        if (data == null) {
+            Loaded loaded;
+            try {
+                loaded = loadPlayer(uuid);
+            } catch (SQLException e) {
+                plugin.getLogger().severe("Could not load skin data for " + uuid + ": " + e.getMessage());
+                return null;
+            }
+            if (loaded.data() == null) {
+                return null;
+            }
+            // Baris persisted hanya dicatat jika snapshot ini yang terpasang
+            data = playerDataMap.compute(uuid, (k, existing) -> {
+                if (existing != null) {
+                    return existing;
+                }
+                publish(k, loaded.state());
+                return loaded.data();
+            });
+            if (data != loaded.data()) {
+                textureStore.releaseAll(loaded.data()); // kalah race dengan loader lain
+            }
+        }
+        lastAccess.put(uuid, System.currentTimeMillis());
+        return data;
+    }
+
+    /**
+     * Membaca data pemain dari database (texture sudah terdaftar di TextureStore); data null jika tidak ada.
+     * Belum dicatat di persisted: pemanggil melakukannya lewat {@link #publish} hanya jika snapshot ini dipasang.
+     */
+    private Loaded loadPlayer(UUID uuid) throws SQLException {
+        long start = System.nanoTime();
+        List<PlayerData.SkinInfo> slots = null;
+        Long activeId = null;
+        long version = 0;
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement select = connection.prepareStatement(SELECT_PLAYER)) {
+            select.setObject(1, uuid);
+            try (ResultSet rs = select.executeQuery()) {
+                while (rs.next()) {
+                    if (slots == null) {
+                        slots = new ArrayList<>();
+                        activeId = readActiveId(rs);
+                        version = rs.getLong("version");
+                    }
+                    readSkin(rs, slots);
+                }
+            }
+        } finally {
+            loadLatency.observeSince(start);
+        }
+        if (slots == null) {
+            return new Loaded(null, Persisted.EMPTY);
+        }
+        PlayerData data = new PlayerData(slots, activeId);
+        return new Loaded(textureStore.acquireAll(data), Persisted.of(data, version));
+    }
+
+    private void publish(UUID uuid, Persisted state) {
+        if (state == Persisted.EMPTY) {
+            persisted.remove(uuid);
+        } else {
+            persisted.put(uuid, state);
+        }
+    }
+
+    private static Long readActiveId(ResultSet rs) throws SQLException {
+        long activeId = rs.getLong("active_id");
+        return rs.wasNull() ? null : activeId;
+    }
+
+    private static void readSkin(ResultSet rs, List<PlayerData.SkinInfo> slots) throws SQLException {
+        long skinId = rs.getLong("skin_id");
+        if (rs.wasNull()) {
+            return; // pemain tanpa skin (LEFT JOIN)
+        }
+        slots.add(new PlayerData.SkinInfo(
+                rs.getString("name"), skinId, rs.getString("texture"), rs.getString("signature")));
+    }
+
+    /** @return jumlah pemain yang bentrok dengan tulisan server lain (sudah digabung dan dirty lagi), atau -1 jika gagal. */
+    private int flushDirty() {
+        if (dirtyPlayers.isEmpty()) {
+            return 0;
+        }
+        List<UUID> drained = new ArrayList<>(dirtyPlayers.size());
+        Map<UUID, Persisted> written = new HashMap<>();
+        List<UUID> conflicts = new ArrayList<>();
+        Iterator<UUID> it = dirtyPlayers.iterator();
+        while (it.hasNext()) {
+            UUID uuid = it.next();
+            it.remove();
+            drained.add(uuid);
+        }
+        int[] counts = new int[6];
+        try (Connection connection = dataSource.getConnection()) {
+            connection.setAutoCommit(false);
+            try (PreparedStatement insertPlayer = connection.prepareStatement(INSERT_PLAYER);
+                 PreparedStatement claimPlayer = connection.prepareStatement(CLAIM_PLAYER);
+                 PreparedStatement deletePlayer = connection.prepareStatement(DELETE_PLAYER);
+                 PreparedStatement upsertSkin = connection.prepareStatement(UPSERT_SKIN);
+                 PreparedStatement deleteSkin = connection.prepareStatement(DELETE_SKIN);
+                 PreparedStatement upsertActive = connection.prepareStatement(UPSERT_ACTIVE);
+                 PreparedStatement deleteActive = connection.prepareStatement(DELETE_ACTIVE)) {
+                long now = System.currentTimeMillis();
+                for (UUID uuid : drained) {
+                    PlayerData data = playerDataMap.get(uuid);
+                    Persisted before = persisted.getOrDefault(uuid, Persisted.EMPTY);
+                    Persisted after = data != null ? Persisted.of(data, before.version() + 1) : Persisted.EMPTY;
+                    if (before.sameRows(after)) {
+                        continue;
+                    }
+                    if (!claim(uuid, before, now, insertPlayer, claimPlayer)) {
+                        conflicts.add(uuid);
+                        continue;
+                    }
+                    counts[4]++;
+                    if (data != null) {
+                        for (PlayerData.SkinInfo skin : data.getSkinSlots()) {
+                            if (!before.skinIds().contains(skin.id())) {
+                                upsertSkin.setObject(1, uuid);
+                                upsertSkin.setLong(2, skin.id());
+                                upsertSkin.setString(3, skin.name());
+                                upsertSkin.setString(4, skin.texture());
+                                upsertSkin.setString(5, skin.signature());
+                                upsertSkin.addBatch();
+                                counts[0]++;
+                            }
+                        }
+                    }
+                    for (long skinId : before.skinIds()) {
+                        if (!after.skinIds().contains(skinId)) {
+                            deleteSkin.setObject(1, uuid);
+                            deleteSkin.setLong(2, skinId);
+                            deleteSkin.addBatch();
+                            counts[1]++;
+                        }
+                    }
+                    if (!Objects.equals(before.activeSkinId(), after.activeSkinId())) {
+                        if (after.activeSkinId() != null) {
+                            upsertActive.setObject(1, uuid);
+                            upsertActive.setLong(2, after.activeSkinId());
+                            upsertActive.addBatch();
+                            counts[2]++;
+                        } else {
+                            deleteActive.setObject(1, uuid);
+                            deleteActive.addBatch();
+                            counts[3]++;
+                        }
+                    }
+                    if (after.isEmpty()) {
+                        deletePlayer.setObject(1, uuid);
+                        deletePlayer.addBatch();
+                        counts[5]++;
+                    }
+                    written.put(uuid, after);
+                }
+                // Urutan: skin dan skin aktif dulu, baris pemain terakhir
+                upsertSkin.executeBatch();
+                deleteSkin.executeBatch();
+                upsertActive.executeBatch();
+                deleteActive.executeBatch();
+                deletePlayer.executeBatch();
+                connection.commit();
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            }
+        } catch (SQLException e) {
+            plugin.getLogger().severe("Could not save skin data to SQL storage: " + e.getMessage());
+            // Kembalikan ke dirty set agar dicoba lagi pada save berikutnya
+            dirtyPlayers.addAll(drained);
+            return -1;
+        }
+        written.forEach((uuid, state) -> {
+            if (state.isEmpty()) {
+                persisted.remove(uuid);
+            } else {
+                persisted.put(uuid, state);
+            }
+        });
+        rowsWritten.add(counts[0], "skins", "upsert");
+        rowsWritten.add(counts[1], "skins", "delete");
+        rowsWritten.add(counts[2], "active_skins", "upsert");
+        rowsWritten.add(counts[3], "active_skins", "delete");
+        rowsWritten.add(counts[4], "players", "upsert");
+        rowsWritten.add(counts[5], "players", "delete");
+        plugin.logDebug(() -> "SQL save: " + written.size() + " player(s) changed, "
+                + (counts[0] + counts[1]) + " skin row(s), " + conflicts.size() + " conflict(s).");
+        for (UUID uuid : conflicts) {
+            try {
+                rebase(uuid);
+            } catch (SQLException e) {
+                plugin.getLogger().severe("Could not reload skin data for " + uuid + ": " + e.getMessage());
+                dirtyPlayers.add(uuid);
+            }
+        }
+        return conflicts.size();
+    }
+
+    /** Menaikkan version baris pemain (atau membuatnya); false jika server lain sudah menulis sejak dibaca. */
+    private static boolean claim(UUID uuid, Persisted before, long now,
+                                 PreparedStatement insertPlayer, PreparedStatement claimPlayer) throws SQLException {
+        if (before.version() == 0) {
+            insertPlayer.setObject(1, uuid);
+            insertPlayer.setLong(2, now);
+            insertPlayer.setObject(3, uuid);
+            return insertPlayer.executeUpdate() == 1;
+        }
+        claimPlayer.setLong(1, now);
+        claimPlayer.setObject(2, uuid);
+        claimPlayer.setLong(3, before.version());
+        return claimPlayer.executeUpdate() == 1;
+    }
+
+    /**
+     * Membaca ulang pemain yang bentrok lalu menerapkan ulang perubahan lokal (skin yang ditambah/dihapus
+     * dan skin aktif yang diganti sejak data terakhir dibaca) di atas data terbaru, dengan compare-and-swap.
+     */
+    private void rebase(UUID uuid) throws SQLException {
+        Persisted base = persisted.getOrDefault(uuid, Persisted.EMPTY);
+        Loaded fresh = loadPlayer(uuid);
+        PlayerData latest = fresh.data() != null ? fresh.data() : new PlayerData();
+        while (true) {
+            PlayerData local = playerDataMap.get(uuid);
+            if (local == null) {
+                textureStore.releaseAll(latest);
+                persisted.remove(uuid);
+                return;
+            }
+            PlayerData merged = textureStore.acquireAll(merge(base, local, latest));
+            if (playerDataMap.replace(uuid, local, merged)) {
+                publish(uuid, fresh.state());
+                textureStore.releaseAll(local);
+                textureStore.releaseAll(latest);
+                markDirty(uuid);
+                return;
+            }
+            textureStore.releaseAll(merged);
+        }
+    }
+
+    private static PlayerData merge(Persisted base, PlayerData local, PlayerData latest) {
+        List<PlayerData.SkinInfo> skins = new ArrayList<>();
+        for (PlayerData.SkinInfo skin : latest.getSkinSlots()) {
+            // Skin yang dihapus di server ini tetap dihapus
+            if (!base.skinIds().contains(skin.id()) || local.getSkinById(skin.id()) != null) {
+                skins.add(skin);
+            }
+        }
+        PlayerData merged = new PlayerData(skins, null);
+        for (PlayerData.SkinInfo skin : local.getSkinSlots()) {
+            // Skin yang ditambahkan di server ini ikut masuk, kecuali sudah ada di data terbaru
+            if (!base.skinIds().contains(skin.id()) && merged.getSkinById(skin.id()) == null) {
+                merged = merged.withSkin(skin, Integer.MAX_VALUE);
+            }
+        }
+        Long activeId = Objects.equals(local.getActiveSkinId(), base.activeSkinId())
+                ? latest.getActiveSkinId()
+                : local.getActiveSkinId();
+        return activeId != null && merged.getSkinById(activeId) != null ? merged.withActiveSkinId(activeId) : merged;
+    }
+
+    /** Mengimpor skins.json / skins.dat (layout single) sekali, jika tabel pemain masih kosong. */
+    private boolean importFileStorage() throws SQLException {
+        try (Connection connection = dataSource.getConnection();
+             Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery("SELECT COUNT(*) FROM skinhub_players")) {
+            if (rs.next() && rs.getLong(1) > 0) {
+                return true;
+            }
+        }
+        File folder = plugin.getDataFolder();
+        if (!new File(folder, "skins.json").exists() && !new File(folder, "skins.dat").exists()) {
+            return true;
+        }
+        if ("sharded".equalsIgnoreCase(plugin.getConfig().getString("storage.layout", "single"))) {
+            plugin.getLogger().warning("Importing the sharded layout into SQL storage is not supported; "
+                    + "switch storage.layout to single once to import existing data.");
+            return true;
+        }
+        plugin.getLogger().info("Importing existing skin data into SQL storage...");
+        FileStorage source = new FileStorage(plugin, gson);
+        try {
+            if (!source.loadData()) {
+                plugin.getLogger().severe("Could not read existing skin data for import.");
+                return false;
+            }
+            Map<UUID, PlayerData> players = source.loadedPlayers();
+            players.forEach((uuid, data) -> {
+                if (data != null && !data.isEmpty()) {
+                    markDirty(uuid);
+                    playerDataMap.put(uuid, data);
+                }
+            });
+            if (!saveData()) {
+                return false;
+            }
+            int imported = players.size();
+            plugin.getLogger().info("Imported " + imported + " player(s); the original files were left untouched.");
+        } finally {
+            source.close();
+            // Data impor tidak perlu tetap di cache; dimuat per pemain saat dibutuhkan
+            playerDataMap.clear();
+            persisted.clear();
+        }
+        return true;
+    }
+
+    /** Hasil baca satu pemain: snapshot (null jika tidak ada) dan baris yang menjadi dasarnya. */
+    private record Loaded(PlayerData data, Persisted state) {
+    }
+
+    /** Baris yang tersimpan untuk satu pemain: ID skin, skin aktif, dan version baris pemain (0 = belum ada). */
+    private record Persisted(Set<Long> skinIds, Long activeSkinId, long version) {
+        static final Persisted EMPTY = new Persisted(Set.of(), null, 0);
+
+        static Persisted of(PlayerData data, long version) {
+            Set<Long> ids = new HashSet<>();
+            for (PlayerData.SkinInfo skin : data.getSkinSlots()) {
+                ids.add(skin.id());
+            }
+            return new Persisted(ids, data.getActiveSkinId(), version);
+        }
+
+        boolean sameRows(Persisted other) {
+            return skinIds.equals(other.skinIds) && Objects.equals(activeSkinId, other.activeSkinId);
+        }
+
+        boolean isEmpty() {
+            return skinIds.isEmpty() && activeSkinId == null;
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package com.zeroends.skinhub;
+
+import io.javalin.http.Context;
+import io.javalin.http.HttpStatus;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Menyajikan aset dashboard dari memori, memakai hasil build (web/assets.properties):
+ * file ber-hash di-cache browser selamanya, HTML selalu divalidasi ulang lewat ETag,
+ * dan versi .gz yang dibuat saat build dikirim apa adanya jika browser mendukung gzip.
+ */
+public class StaticAssets {
+
+    private static final String ROOT = "/web/";
+    private static final String CACHE_IMMUTABLE = "public, max-age=31536000, immutable";
+    private static final String CACHE_REVALIDATE = "no-cache";
+
+    private final Map<String, Asset> assets = new LinkedHashMap<>();
+
+    /**
+     * Memuat semua aset yang terdaftar di manifest build.
+     * @return null jika manifest tidak ada (misalnya dijalankan tanpa build Maven).
+     */
+    public static StaticAssets load(SkinHub plugin) {
+        Properties manifest = new Properties();
+        try (InputStream in = StaticAssets.class.getResourceAsStream(ROOT + "assets.properties")) {
+            if (in == null) {
+                return null;
+            }
+            manifest.load(in);
+        } catch (IOException e) {
+            plugin.getLogger().warning("Could not read web asset manifest: " + e.getMessage());
+            return null;
+        }
+
+        StaticAssets result = new StaticAssets();
+        for (String logicalName : manifest.stringPropertyNames()) {
+            String servedName = manifest.getProperty(logicalName);
+            try {
+                byte[] raw = readResource(servedName);
+                if (raw == null) {
+                    plugin.getLogger().warning("Web asset " + servedName + " listed in manifest but missing from the jar.");
+                    continue;
+                }
+                // Nama yang berbeda dari nama asli berarti mengandung hash isi file
+                boolean fingerprinted = !servedName.equals(logicalName);
+                result.assets.put(servedName, new Asset(raw, readResource(servedName + ".gz"),
+                        contentTypeOf(servedName), "\"" + sha256(raw) + "\"",
+                        fingerprinted ? CACHE_IMMUTABLE : CACHE_REVALIDATE));
+            } catch (IOException e) {
+                plugin.getLogger().warning("Could not load web asset " + servedName + ": " + e.getMessage());
+            }
+        }
+        plugin.logDebug(() -> "Loaded " + result.assets.size() + " precompressed web asset(s) into memory.");
+        return result;
+    }
+
+    /** Nama file yang disajikan (dipakai untuk mendaftarkan route). */
+    public Iterable<String> names() {
+        return assets.keySet();
+    }
+
+    public void serve(Context ctx, String name) {
+        Asset asset = assets.get(name);
+        if (asset == null) {
+            ctx.status(HttpStatus.NOT_FOUND);
+            return;
+        }
+        ctx.header("Cache-Control", asset.cacheControl());
+        ctx.header("ETag", asset.etag());
+        ctx.header("Vary", "Accept-Encoding");
+        if (asset.etag().equals(ctx.header("If-None-Match"))) {
+            ctx.status(HttpStatus.NOT_MODIFIED);
+            return;
+        }
+        ctx.contentType(asset.contentType());
+        String acceptEncoding = ctx.header("Accept-Encoding");
+        if (asset.gzip() != null && acceptEncoding != null && acceptEncoding.contains("gzip")) {
+            ctx.header("Content-Encoding", "gzip");
+            ctx.result(asset.gzip());
+        } else {
+            ctx.result(asset.raw());
+        }
+    }
+
+    private static byte[] readResource(String name) throws IOException {
+        try (InputStream in = StaticAssets.class.getResourceAsStream(ROOT + name)) {
+            return in != null ? in.readAllBytes() : null;
+        }
+    }
+
+    private static String contentTypeOf(String name) {
+        if (name.endsWith(".html")) return "text/html; charset=utf-8";
+        if (name.endsWith(".js")) return "text/javascript; charset=utf-8";
+        if (name.endsWith(".css")) return "text/css; charset=utf-8";
+        if (name.endsWith(".png")) return "image/png";
+        return "application/octet-stream";
+    }
+
+    private static String sha256(byte[] data) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(data), 0, 16);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    private record Asset(byte[] raw, byte[] gzip, String contentType, String etag, String cacheControl) {}
+}
@@ -2,100 +2,90 @@ package com.zeroends.skinhub;
 
 import com.google.gson.Gson;
 
-import java.io.*;
-import java.nio.charset.StandardCharsets;
-import java.nio.file.Files;
-import java.nio.file.StandardCopyOption;
+import java.io.File;
+import java.util.Map;
 import java.util.UUID;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentMap;
-
-public class Storage {
-
-    private final SkinHub plugin;
-    private final Gson gson;
-    private ConcurrentMap<UUID, PlayerData> playerDataMap;
-    private final File dataFile;
-    private final File backupFile;
-    private static final java.lang.reflect.Type DATA_TYPE =
-            new com.google.gson.reflect.TypeToken<ConcurrentMap<UUID, PlayerData>>() {}.getType();
-
-    public Storage(SkinHub plugin, Gson gson) {
-        this.plugin = plugin;
-        this.gson = gson;
-        this.playerDataMap = new ConcurrentHashMap<>();
-        this.dataFile = new File(plugin.getDataFolder(), "skins.json");
-        this.backupFile = new File(plugin.getDataFolder(), "skins.json.bak");
-    }
+import java.util.function.UnaryOperator;
 
-    /** Memuat data skin dari file skins.json. */
-    public boolean loadData() {
-        if (!dataFile.exists()) {
-            plugin.logDebug("skins.json not found. A new one will be created on save.");
-            return true;
-        }
+/**
+ * Penyimpanan koleksi skin pemain.
+ * Implementasi dipilih lewat storage.type: file (skins.json / skins.dat / shard per pemain) atau sql (H2 embedded).
+ */
+public interface Storage {
 
-        try (BufferedReader reader = Files.newBufferedReader(dataFile.toPath(), StandardCharsets.UTF_8)) {
-            ConcurrentMap<UUID, PlayerData> loadedMap = gson.fromJson(reader, DATA_TYPE);
-            if (loadedMap != null) {
-                this.playerDataMap = loadedMap;
-                plugin.logDebug("Successfully loaded " + playerDataMap.size() + " player data entries.");
-            } else {
-                this.playerDataMap = new ConcurrentHashMap<>();
-                plugin.logDebug("skins.json was empty or malformed. Initializing new map.");
-            }
-            return true;
-        } catch (IOException e) {
-            plugin.getLogger().severe("Could not read skins.json: " + e.getMessage());
-            return loadBackup();
+    /** Membuat implementasi sesuai storage.type di config. */
+    static Storage create(SkinHub plugin, Gson gson) {
+        if ("sql".equalsIgnoreCase(plugin.getConfig().getString("storage.type", "file"))) {
+            return new SqlStorage(plugin, gson);
         }
+        return new FileStorage(plugin, gson);
     }
 
-    /** Menyimpan data skin ke file skins.json. */
-    public boolean saveData() {
-        if (dataFile.exists()) {
-            try {
-                Files.copy(dataFile.toPath(), backupFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
-                plugin.logDebug("Created backup: skins.json.bak");
-            } catch (IOException e) {
-                plugin.getLogger().warning("Failed to create backup file: " + e.getMessage());
-            }
-        }
-        try (BufferedWriter writer = Files.newBufferedWriter(dataFile.toPath(), StandardCharsets.UTF_8)) {
-            gson.toJson(playerDataMap, DATA_TYPE, writer);
-            return true;
-        } catch (IOException e) {
-            plugin.getLogger().severe("Could not save data to skins.json: " + e.getMessage());
-            return false;
-        }
-    }
+    /** Menyiapkan storage dan memuat data yang perlu ada di memori sejak awal. */
+    boolean loadData();
 
-    /** Mencoba memuat dari file backup jika file utama gagal. */
-    private boolean loadBackup() {
-        if (!backupFile.exists()) {
-            plugin.getLogger().severe("skins.json is corrupted and no backup (skins.json.bak) was found.");
-            return false;
-        }
-        plugin.getLogger().warning("Attempting to load data from backup file (skins.json.bak)...");
-        try (BufferedReader reader = Files.newBufferedReader(backupFile.toPath(), StandardCharsets.UTF_8)) {
-            ConcurrentMap<UUID, PlayerData> loadedMap = gson.fromJson(reader, DATA_TYPE);
-            if (loadedMap != null) {
-                this.playerDataMap = loadedMap;
-                plugin.getLogger().info("Successfully loaded data from backup.");
-                saveData();
-                return true;
-            } else {
-                plugin.getLogger().severe("Backup file is also corrupted.");
-                return false;
-            }
-        } catch (IOException e) {
-            plugin.getLogger().severe("Could not read backup file: " + e.getMessage());
-            return false;
-        }
+    /**
+     * Menyimpan perubahan (pemain yang ditandai lewat {@link #markDirty}).
+     * @return false jika penyimpanan gagal; pemain yang belum tersimpan dicoba lagi pada save berikutnya.
+     */
+    boolean saveData();
+
+    /** true jika storage perlu dipadatkan (mis. journal terlalu besar). */
+    boolean needsCompaction();
+
+    /** Memadatkan data tersimpan; dipakai saat shutdown dan compaction. */
+    boolean compact();
+
+    /** Mengekspor seluruh data ke file JSON (format skins.json) untuk debugging. */
+    boolean exportJson(File target);
+
+    /** Menandai data pemain berubah agar ikut tersimpan pada save berikutnya. */
+    void markDirty(UUID uuid);
+
+    /** Menandai pemain online; data pemain online tidak pernah di-evict dari cache. */
+    void setOnline(UUID uuid, boolean online);
+
+    /** Memuat data pemain ke cache lebih awal (mis. saat pre-login) agar tidak membaca storage di main thread. */
+    void preload(UUID uuid);
+
+    /** Membuang data pemain yang tidak aktif dari cache jika melewati batas. */
+    void trimCache();
+
+    /** Menutup storage; dipanggil terakhir saat plugin dimatikan. */
+    void close();
+
+    TextureStore getTextureStore();
+
+    /** Mendapatkan data pemain berdasarkan UUID, membuat entri baru jika belum ada. */
+    PlayerData getPlayerData(UUID uuid);
+
+    /**
+     * Mengubah data pemain secara atomik: perubahan diterapkan pada snapshot saat ini lalu dipasang
+     * dengan compare-and-swap, diulang jika ada perubahan lain di antaranya. Karena bisa dipanggil
+     * lebih dari sekali, fungsi tidak boleh punya efek samping selain mencatat hasil percobaan terakhir.
+     * Fungsi mengembalikan snapshot yang sama jika tidak ada yang perlu diubah.
+     * @return snapshot yang terpasang setelah perubahan.
+     */
+    PlayerData update(UUID uuid, UnaryOperator<PlayerData> change);
+
+    /**
+     * Mencari data pemain tanpa membuat entri kosong (untuk lookup read-only seperti dashboard).
+     * @return PlayerData, atau null jika pemain belum punya data.
+     */
+    PlayerData findPlayerData(UUID uuid);
+
+    /**
+     * Mencatat token sesi signed yang di-logout, agar server lain yang memakai storage yang sama ikut menolaknya.
+     * Storage yang tidak dibagi antar server (file) tidak mencatat apa pun.
+     */
+    default void revokeSession(long tokenId, long expiresAtMillis) {
     }
 
-    /** Mendapatkan data pemain berdasarkan UUID. */
-    public PlayerData getPlayerData(UUID uuid) {
-        return playerDataMap.computeIfAbsent(uuid, k -> new PlayerData());
+    /**
+     * @return token sesi signed yang sudah di-logout di server mana pun yang memakai storage ini
+     *         (id token -> expiresAt, hanya yang belum expire), atau null jika gagal dibaca.
+     */
+    default Map<Long, Long> loadRevokedSessions() {
+        return Map.of();
     }
 }
@@ -0,0 +1,133 @@
+package com.zeroends.skinhub;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Write-ahead journal untuk Storage.
+ * Setiap record adalah satu baris JSON berisi state lengkap satu pemain (upsert),
+ * sehingga replay bersifat idempotent dan record terakhir untuk UUID yang sama selalu menang.
+ */
+public class StorageJournal {
+
+    private final File file;
+    private final Gson gson;
+    private FileChannel channel;
+
+    public StorageJournal(File file, Gson gson) {
+        this.file = file;
+        this.gson = gson;
+    }
+
+    /**
+     * Memutar ulang journal ke dalam map yang diberikan.
+     * Baris terakhir yang terpotong (crash saat menulis) diabaikan dan dipangkas dari file.
+     * @return jumlah record yang berhasil diterapkan.
+     */
+    public synchronized int replay(Map<UUID, PlayerData> target) throws IOException {
+        if (!file.exists()) {
+            return 0;
+        }
+        int applied = 0;
+        long validBytes = 0;
+        try (BufferedReader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank()) {
+                    validBytes += line.getBytes(StandardCharsets.UTF_8).length + 1;
+                    continue;
+                }
+                Record record;
+                try {
+                    record = gson.fromJson(line, Record.class);
+                } catch (JsonParseException e) {
+                    break;
+                }
+                if (record == null || record.uuid() == null) {
+                    break;
+                }
+                if (record.data() == null) {
+                    target.remove(record.uuid());
+                } else {
+                    target.put(record.uuid(), record.data());
+                }
+                validBytes += line.getBytes(StandardCharsets.UTF_8).length + 1;
+                applied++;
+            }
+        }
+        long actualBytes = file.length();
+        if (validBytes < actualBytes) {
+            try (FileChannel ch = FileChannel.open(file.toPath(), StandardOpenOption.WRITE)) {
+                ch.truncate(validBytes);
+            }
+        }
+        return applied;
+    }
+
+    /**
+     * Menambahkan sekelompok record ke journal lalu melakukan satu fsync untuk seluruh kelompok.
+     * @return jumlah byte yang ditulis.
+     */
+    public synchronized long append(Collection<Record> records) throws IOException {
+        if (records.isEmpty()) {
+            return 0;
+        }
+        StringBuilder builder = new StringBuilder();
+        for (Record record : records) {
+            builder.append(gson.toJson(record)).append('\n');
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(builder.toString().getBytes(StandardCharsets.UTF_8));
+        int written = buffer.remaining();
+        FileChannel ch = openChannel();
+        while (buffer.hasRemaining()) {
+            ch.write(buffer);
+        }
+        ch.force(false);
+        return written;
+    }
+
+    /** Mengosongkan journal setelah snapshot penuh berhasil ditulis. */
+    public synchronized void reset() throws IOException {
+        FileChannel ch = openChannel();
+        ch.truncate(0);
+        ch.force(true);
+    }
+
+    public long size() {
+        return file.length();
+    }
+
+    public synchronized void close() {
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (IOException ignored) {
+            } finally {
+                channel = null;
+            }
+        }
+    }
+
+    private FileChannel openChannel() throws IOException {
+        if (channel == null || !channel.isOpen()) {
+            channel = FileChannel.open(file.toPath(),
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        }
+        return channel;
+    }
+
+    /** Satu entri journal; data null berarti data pemain dihapus. */
+    public record Record(UUID uuid, PlayerData data) {}
+}
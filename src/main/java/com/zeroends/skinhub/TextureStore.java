@@ -0,0 +1,81 @@
+package com.zeroends.skinhub;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Tabel texture global yang dibagi semua pemain.
+ * Skin yang sama (texture value identik) hanya disimpan sekali di heap; setiap SkinInfo
+ * memegang referensi ke string kanonis dari tabel ini, dengan reference counting per entri.
+ */
+public class TextureStore {
+
+    // Key adalah texture value itu sendiri; hash-nya di-cache oleh String sehingga lookup O(1)
+    private final ConcurrentMap<String, Entry> entries = new ConcurrentHashMap<>();
+
+    /**
+     * Mendaftarkan satu referensi ke texture skin ini.
+     * @return SkinInfo yang texture dan signature-nya menunjuk ke instance kanonis.
+     */
+    public PlayerData.SkinInfo acquire(PlayerData.SkinInfo skin) {
+        if (skin.texture() == null) {
+            return skin;
+        }
+        Entry entry = entries.compute(skin.texture(), (texture, current) -> {
+            if (current == null) {
+                return new Entry(texture, skin.signature());
+            }
+            current.refs++;
+            return current;
+        });
+        if (entry.texture == skin.texture() && entry.signature == skin.signature()) {
+            return skin;
+        }
+        return new PlayerData.SkinInfo(skin.name(), skin.id(), entry.texture, entry.signature);
+    }
+
+    /** Melepas satu referensi; entri dihapus dari tabel saat referensinya habis. */
+    public void release(PlayerData.SkinInfo skin) {
+        if (skin == null || skin.texture() == null) {
+            return;
+        }
+        entries.computeIfPresent(skin.texture(), (texture, current) -> --current.refs <= 0 ? null : current);
+    }
+
+    /**
+     * Mendaftarkan semua skin milik pemain (dipakai setelah data dimuat dari disk).
+     * @return snapshot dengan texture yang menunjuk ke instance kanonis.
+     */
+    public PlayerData acquireAll(PlayerData data) {
+        List<PlayerData.SkinInfo> skins = new ArrayList<>(data.getSkinSlots().size());
+        for (PlayerData.SkinInfo skin : data.getSkinSlots()) {
+            skins.add(acquire(skin));
+        }
+        return data.withSkinSlots(skins);
+    }
+
+    /** Melepas semua skin milik pemain (dipakai saat data di-evict dari cache). */
+    public void releaseAll(PlayerData data) {
+        for (PlayerData.SkinInfo skin : data.getSkinSlots()) {
+            release(skin);
+        }
+    }
+
+    /** Jumlah texture unik di tabel. */
+    public int size() {
+        return entries.size();
+    }
+
+    private static final class Entry {
+        private final String texture;
+        private final String signature;
+        private int refs = 1; // hanya diubah di dalam compute() untuk key yang sama
+
+        private Entry(String texture, String signature) {
+            this.texture = texture;
+            this.signature = signature;
+        }
+    }
+}
@@ -2,7 +2,9 @@ package com.zeroends.skinhub;
 
 import io.javalin.Javalin;
 import io.javalin.http.Context;
+import io.javalin.http.Handler;
 import io.javalin.http.HttpStatus;
+import io.javalin.http.ServiceUnavailableResponse;
 import io.javalin.http.UploadedFile;
 import io.javalin.http.staticfiles.Location;
 import io.javalin.util.JavalinBindException;
@@ -10,24 +12,45 @@ import io.javalin.util.JavalinBindException;
 import org.bukkit.Bukkit;
 import org.bukkit.OfflinePlayer;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.HashMap;
 import java.util.Map;
 import java.util.Objects;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.logging.Level;
 
 import static io.javalin.apibuilder.ApiBuilder.*;
 
 public class WebServer {
 
+    private static final long WARMUP_RETRY_SECONDS = 5;
+
     private final SkinHub plugin;
     private final PinManager pinManager;
     private final SkinManager skinManager;
+    private final SkinRenderer skinRenderer;
+    // Berbeda di setiap start, agar ETag dari sesi server sebelumnya tidak pernah cocok
+    private final String etagEpoch = Long.toString(System.currentTimeMillis(), 36);
     private Javalin app;
+    // Pekerjaan blocking (resolve username, storage, SkinsRestorer, decode PNG) berjalan di virtual thread
+    private final ExecutorService blockingExecutor =
+            Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("SkinHub-Web-", 0).factory());
+    private final Metrics.Histogram requestLatency;
 
     public WebServer(SkinHub plugin, PinManager pinManager, SkinManager skinManager) {
         this.plugin = plugin;
         this.pinManager = pinManager;
         this.skinManager = skinManager;
+        this.skinRenderer = new SkinRenderer(plugin);
+        this.requestLatency = plugin.getMetrics().histogram("skinhub_web_request_seconds",
+                "Web request latency by route", Metrics.LATENCY_BUCKETS, "method", "route", "status");
     }
 
     public void start() {
@@ -52,28 +75,64 @@ public class WebServer {
     }
 
     private void startOnPort(int port) {
+        // Aset hasil build disajikan dari memori; tanpa manifest (bukan hasil build Maven) pakai static files biasa
+        StaticAssets assets = StaticAssets.load(plugin);
+        boolean metricsEnabled = plugin.getConfig().getBoolean("metrics.enabled", true);
+        boolean metricsLoopbackOnly = plugin.getConfig().getBoolean("metrics.loopback-only", true);
         this.app = Javalin.create(config -> {
-            config.staticFiles.add("/web", Location.CLASSPATH);
+            if (assets == null) {
+                config.staticFiles.add("/web", Location.CLASSPATH);
+            }
             long maxFileSize = plugin.getConfig().getLong("skin-management.max-file-size-kb", 1024) * 1024;
             config.http.maxRequestSize = maxFileSize + 1024;
         }).routes(() -> {
+            before(ctx -> ctx.attribute("startNanos", System.nanoTime()));
+            after(this::recordRequest);
+
             get("/", ctx -> ctx.redirect("/index.html"));
+            if (metricsEnabled) {
+                get("/metrics", ctx -> handleMetrics(ctx, metricsLoopbackOnly));
+            }
+            if (assets != null) {
+                for (String name : assets.names()) {
+                    get("/" + name, ctx -> assets.serve(ctx, name));
+                }
+            }
 
             path("api", () -> {
-                post("login", this::handleLogin);
-                post("logout", this::handleLogout);
+                post("login", async(this::handleLogin));
+                post("logout", async(this::handleLogout));
 
                 path("dashboard", () -> {
+                    before("/*", this::requireData);
+                    // Validasi sesi hanya membaca memori (logout dari backend lain disalin di background),
+                    // jadi tetap sinkron di thread Jetty
                     before("/*", this::authenticate);
-                    get("data", this::handleDashboardData);
-                    post("upload", this::handleUpload);
-                    post("apply", this::handleApplySkin);
-                    post("delete", this::handleDeleteSkin);
+                    get("data", async(this::handleDashboardData));
+                    post("upload", async(this::handleUpload));
+                    get("upload/{jobId}", async(this::handleUploadStatus));
+                    post("apply", async(this::handleApplySkin));
+                    post("delete", async(this::handleDeleteSkin));
+                });
+
+                path("skins", () -> {
+                    before("/*", this::requireData);
+                    before("/*", this::authenticate);
+                    get("{id}/thumb.png", async(ctx -> handleSkinThumbnail(ctx, SkinRenderer.View.BODY)));
+                    get("{id}/head.png", async(ctx -> handleSkinThumbnail(ctx, SkinRenderer.View.HEAD)));
                 });
             });
+        }).exception(ServiceUnavailableResponse.class, (e, ctx) -> {
+            ctx.header("Retry-After", Long.toString(WARMUP_RETRY_SECONDS));
+            ctx.status(HttpStatus.SERVICE_UNAVAILABLE).json(Map.of("success", false, "message", e.getMessage()));
         }).start(port);
     }
 
+    /** Port yang benar-benar dipakai (berguna jika web.port = 0), atau -1 jika server belum jalan. */
+    public int getPort() {
+        return app != null ? app.port() : -1;
+    }
+
     public void stop() {
         if (app != null) {
             try {
@@ -82,6 +141,70 @@ public class WebServer {
                 app = null;
             }
         }
+        blockingExecutor.shutdown();
+    }
+
+    /**
+     * Menjalankan handler di virtual thread dan menyerahkan future-nya ke Javalin lewat ctx.future,
+     * sehingga respons selalu ditulis sebelum Jetty menutup request dan thread Jetty langsung bebas.
+     */
+    private Handler async(Handler handler) {
+        return ctx -> ctx.future(() -> CompletableFuture
+                .runAsync(() -> {
+                    try {
+                        handler.handle(ctx);
+                    } catch (Exception e) {
+                        throw new CompletionException(e);
+                    }
+                }, blockingExecutor)
+                .exceptionally(ex -> {
+                    Throwable cause = ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex;
+                    plugin.getLogger().log(Level.SEVERE, "Unhandled error in " + ctx.method() + " " + ctx.path(), cause);
+                    ctx.status(HttpStatus.INTERNAL_SERVER_ERROR).json(Map.of("success", false, "message", "Internal server error."));
+                    return null;
+                }));
+    }
+
+    // ======== Metrics ========
+    private void recordRequest(Context ctx) {
+        Long start = ctx.attribute("startNanos");
+        if (start == null) {
+            return;
+        }
+        // Pakai pola route (bukan path asli) agar jumlah label tetap terbatas
+        String route = ctx.endpointHandlerPath();
+        if (route == null || route.isEmpty()) {
+            route = "unmatched";
+        }
+        requestLatency.observeSince(start, String.valueOf(ctx.method()), route, Integer.toString(ctx.statusCode()));
+    }
+
+    // GET /metrics (format teks Prometheus)
+    private void handleMetrics(Context ctx, boolean loopbackOnly) {
+        if (loopbackOnly && !isLoopback(ctx.req().getRemoteAddr())) {
+            ctx.status(HttpStatus.FORBIDDEN).result("Forbidden");
+            return;
+        }
+        ctx.header("Cache-Control", "no-store");
+        ctx.contentType("text/plain; version=0.0.4; charset=utf-8");
+        ctx.result(plugin.getMetrics().scrape());
+    }
+
+    private static boolean isLoopback(String address) {
+        try {
+            // Alamat remote selalu berupa IP literal, jadi tidak ada lookup DNS di sini
+            return address != null && InetAddress.getByName(address).isLoopbackAddress();
+        } catch (UnknownHostException e) {
+            return false;
+        }
+    }
+
+    // ======== Readiness ========
+    // Data skin dimuat di background setelah start; sampai selesai, endpoint yang membaca storage menjawab 503
+    private void requireData(Context ctx) {
+        if (!plugin.isDataReady()) {
+            throw new ServiceUnavailableResponse("Server is warming up, please try again in a few seconds.");
+        }
     }
 
     // ======== Auth middleware ========
@@ -90,7 +213,7 @@ public class WebServer {
         PinManager.UserInfo userInfo = pinManager.validateSession(token);
 
         if (userInfo == null) {
-            plugin.logDebug("Auth failed for token: " + token);
+            plugin.logDebug(() -> "Auth failed for token: " + token);
             ctx.status(HttpStatus.UNAUTHORIZED).json(Map.of("success", false, "message", "Session expired or invalid. Please login again."));
             ctx.res().setHeader("Connection", "close");
             return;
@@ -129,8 +252,7 @@ public class WebServer {
             return;
         }
 
-        String sessionToken = UUID.randomUUID().toString();
-        pinManager.createSession(sessionToken, uuid, username);
+        String sessionToken = pinManager.createSession(uuid, username);
 
         // Cookie age dari config (hari → detik)
         int expiryDays = plugin.getConfig().getInt("web.session-expiry-days", 30);
@@ -159,6 +281,16 @@ public class WebServer {
             return;
         }
 
+        // Versi dibaca sebelum daftar skin: jika data berubah di antaranya, ETag lama dikirim
+        // bersama data baru, dan request berikutnya tetap mengambil ulang (tidak pernah basi)
+        String etag = "W/\"" + etagEpoch + "-" + userInfo.uuid() + "-" + skinManager.getCollectionVersion(userInfo.uuid()) + "\"";
+        ctx.header("ETag", etag);
+        ctx.header("Cache-Control", "private, no-cache");
+        if (etag.equals(ctx.header("If-None-Match"))) {
+            ctx.status(HttpStatus.NOT_MODIFIED);
+            return;
+        }
+
         var skins = skinManager.getSkinCollection(userInfo.uuid());
         int maxSkins = plugin.getConfig().getInt("skin-management.max-skins", 5);
 
@@ -184,17 +316,20 @@ public class WebServer {
             return;
         }
 
-        skinManager.applySkin(userInfo.uuid(), skinId).thenAccept(success -> {
-            if (Boolean.TRUE.equals(success)) {
-                ctx.json(Map.of("success", true, "message", "Skin applied!"));
-            } else {
-                ctx.status(HttpStatus.BAD_REQUEST).json(Map.of("success", false, "message", "Failed to apply skin (not found?)."));
-            }
-        }).exceptionally(ex -> {
-            plugin.getLogger().log(Level.SEVERE, "Failed to apply skin for " + userInfo.username(), ex);
+        boolean success;
+        try {
+            // Aman untuk menunggu: handler ini berjalan di virtual thread
+            success = Boolean.TRUE.equals(skinManager.applySkin(userInfo.uuid(), skinId).join());
+        } catch (CompletionException ex) {
+            plugin.getLogger().log(Level.SEVERE, "Failed to apply skin for " + userInfo.username(), ex.getCause());
             ctx.status(HttpStatus.INTERNAL_SERVER_ERROR).json(Map.of("success", false, "message", "Internal server error while applying skin."));
-            return null;
-        });
+            return;
+        }
+        if (success) {
+            ctx.json(Map.of("success", true, "message", "Skin applied!"));
+        } else {
+            ctx.status(HttpStatus.BAD_REQUEST).json(Map.of("success", false, "message", "Failed to apply skin (not found?)."));
+        }
     }
 
     // POST /api/dashboard/delete
@@ -241,30 +376,30 @@ public class WebServer {
         }
 
         try {
-            byte[] fileData = uploadedFile.content().readAllBytes();
+            byte[] fileData = readUpload(uploadedFile);
+            if (fileData == null) {
+                ctx.status(HttpStatus.BAD_REQUEST).json(Map.of("success", false, "message", "File size exceeds the upload limit."));
+                return;
+            }
             String fileName = uploadedFile.filename();
 
-            plugin.getSkinManager().processUploadedSkin(userInfo.uuid(), fileData, fileName)
-                .thenAccept(result -> {
-                    if (result.success()) {
-                        ctx.json(Map.of("success", true, "message", result.message(), "newSkin", result.skinInfo()));
-                    } else {
-                        if (result.message().contains("API Key untuk Mineskin belum diisi")) {
-                            ctx.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                                .json(Map.of("success", false, "message", "API Key untuk Mineskin belum diisi di config.yml! Silakan isi dan restart server!"));
-                        } else if (result.message().contains("Invalid skin file") || result.message().contains("File size") || result.message().contains("collection is full")) {
-                            ctx.status(HttpStatus.BAD_REQUEST).json(Map.of("success", false, "message", result.message()));
-                        } else {
-                            ctx.status(HttpStatus.INTERNAL_SERVER_ERROR).json(Map.of("success", false, "message", result.message()));
-                        }
-                    }
-                })
-                .exceptionally(ex -> {
-                    plugin.getLogger().log(Level.SEVERE, "Fatal error processing upload for " + userInfo.username(), ex);
-                    ctx.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                        .json(Map.of("success", false, "message", "An unknown server error occurred during processing: " + ex.getMessage()));
-                    return null;
-                });
+            SkinManager.UploadResult result = skinManager.processUploadedSkin(userInfo.uuid(), fileData, fileName);
+            if (result.success() && result.jobId() != null) {
+                // Diproses di antrian MineSkin; klien mengecek status lewat /upload/{jobId}
+                ctx.status(HttpStatus.ACCEPTED).json(Map.of(
+                        "success", true,
+                        "message", result.message(),
+                        "jobId", result.jobId(),
+                        "status", MineSkinQueue.Status.QUEUED.name()));
+            } else if (result.success()) {
+                ctx.json(Map.of("success", true, "message", result.message(), "newSkin", result.skinInfo()));
+            } else if (result.message().contains("Invalid skin file") || result.message().contains("File size") || result.message().contains("collection is full")) {
+                ctx.status(HttpStatus.BAD_REQUEST).json(Map.of("success", false, "message", result.message()));
+            } else if (result.message().contains("Please wait") || result.message().contains("queue is full")) {
+                ctx.status(HttpStatus.TOO_MANY_REQUESTS).json(Map.of("success", false, "message", result.message()));
+            } else {
+                ctx.status(HttpStatus.INTERNAL_SERVER_ERROR).json(Map.of("success", false, "message", result.message()));
+            }
 
         } catch (Exception e) {
             plugin.getLogger().log(Level.WARNING, "Error reading file stream:", e);
@@ -272,7 +407,98 @@ public class WebServer {
         }
     }
 
+    // GET /api/dashboard/upload/{jobId}
+    private void handleUploadStatus(Context ctx) {
+        PinManager.UserInfo userInfo = ctx.attribute("userInfo");
+        if (userInfo == null) {
+            ctx.status(HttpStatus.UNAUTHORIZED).json(Map.of("success", false, "message", "Unauthorized"));
+            return;
+        }
+
+        MineSkinQueue.Job job = skinManager.getUploadJob(userInfo.uuid(), ctx.pathParam("jobId"));
+        if (job == null) {
+            ctx.status(HttpStatus.NOT_FOUND).json(Map.of("success", false, "message", "Upload job not found."));
+            return;
+        }
+
+        MineSkinQueue.Status status = job.status();
+        Map<String, Object> body = new HashMap<>();
+        body.put("success", status != MineSkinQueue.Status.FAILED);
+        body.put("status", status.name());
+        if (job.message() != null) {
+            body.put("message", job.message());
+        }
+        SkinManager.UploadResult result = job.result();
+        if (result != null && result.skinInfo() != null) {
+            body.put("newSkin", result.skinInfo());
+        }
+        ctx.json(body);
+    }
+
+    // ======== Thumbnail ========
+    // GET /api/skins/{id}/thumb.png (badan penuh) dan /api/skins/{id}/head.png (kepala)
+    private void handleSkinThumbnail(Context ctx, SkinRenderer.View view) {
+        PinManager.UserInfo userInfo = ctx.attribute("userInfo");
+        if (userInfo == null) {
+            ctx.status(HttpStatus.UNAUTHORIZED).json(Map.of("success", false, "message", "Unauthorized"));
+            return;
+        }
+
+        long skinId;
+        try {
+            skinId = Long.parseLong(ctx.pathParam("id"));
+        } catch (NumberFormatException e) {
+            ctx.status(HttpStatus.BAD_REQUEST).json(Map.of("success", false, "message", "Invalid skinId."));
+            return;
+        }
+        PlayerData.SkinInfo skin = skinManager.findSkin(userInfo.uuid(), skinId);
+        if (skin == null) {
+            ctx.status(HttpStatus.NOT_FOUND).json(Map.of("success", false, "message", "Skin not found."));
+            return;
+        }
+
+        // Texture sebuah skin tidak pernah berubah, jadi ETag dan cache browser berlaku selamanya
+        String etag = SkinRenderer.etagOf(skin, view);
+        ctx.header("ETag", etag);
+        ctx.header("Cache-Control", "private, max-age=31536000, immutable");
+        if (etag.equals(ctx.header("If-None-Match"))) {
+            ctx.status(HttpStatus.NOT_MODIFIED);
+            return;
+        }
+
+        try {
+            SkinRenderer.Thumbnail thumbnail = skinRenderer.thumbnail(skin, view);
+            ctx.contentType("image/png").result(thumbnail.png());
+        } catch (IOException e) {
+            plugin.getLogger().warning("Could not render thumbnail for skin " + skinId + ": " + e.getMessage());
+            ctx.header("Cache-Control", "no-store");
+            ctx.status(HttpStatus.BAD_GATEWAY).json(Map.of("success", false, "message", "Could not render skin preview."));
+        }
+    }
+
     // ======== Helpers ========
+
+    /**
+     * Membaca isi upload tepat sekali ke array berukuran pas; array ini dipakai terus sampai
+     * dikirim ke MineSkin tanpa disalin lagi.
+     * @return isi file, atau null jika ukurannya melebihi batas.
+     */
+    private byte[] readUpload(UploadedFile uploadedFile) throws IOException {
+        long maxFileSize = plugin.getConfig().getLong("skin-management.max-file-size-kb", 1024) * 1024;
+        long size = uploadedFile.size();
+        if (size > maxFileSize) {
+            return null;
+        }
+        try (InputStream in = uploadedFile.content()) {
+            if (size < 0) {
+                // Ukuran tidak diketahui: baca paling banyak batas + 1 byte untuk mendeteksi file kebesaran
+                byte[] data = in.readNBytes((int) maxFileSize + 1);
+                return data.length > maxFileSize ? null : data;
+            }
+            // readNBytes sudah mengembalikan array seukuran data yang terbaca; upload terpotong ditolak saat decode
+            return in.readNBytes((int) size);
+        }
+    }
     private Long readSkinId(Context ctx) {
         Long skinId = null;
         try {
@@ -1,5 +1,6 @@
 // Global API prefix
 const API_URL = '/api';
+const UPLOAD_POLL_INTERVAL_MS = 2000;
 
 // --- Initialization ---
 
@@ -54,6 +55,7 @@ async function handleLoginSubmit(event) {
 // --- Dashboard Page Logic ---
 
 let skinViewerInstances = new Map(); // Map to store 3D viewers by skinId
+let renderedDashboardEtag = null; // ETag of the collection currently shown
 
 async function initDashboardPage() {
     const logoutBtn = document.getElementById('logout-btn');
@@ -78,12 +80,27 @@ async function fetchDashboardData() {
                 window.location.href = 'index.html';
                 return;
             }
+            if (response.status === 503) {
+                // Server baru start dan data skin masih dimuat; coba lagi sesuai Retry-After
+                const retryAfter = parseInt(response.headers.get('Retry-After'), 10) || 5;
+                const data = await response.json().catch(() => ({}));
+                showMessage(data.message || 'Server is warming up, please wait...', 'error');
+                setTimeout(fetchDashboardData, retryAfter * 1000);
+                return;
+            }
             throw new Error(`Server error: ${response.statusText}`);
         }
 
+        // Browser merevalidasi lewat ETag (304); jika versinya sama, koleksi tidak perlu dibangun ulang
+        const etag = response.headers.get('ETag');
+        if (etag && etag === renderedDashboardEtag) {
+            return;
+        }
+
         const data = await response.json();
 
         if (data.success) {
+            renderedDashboardEtag = etag;
             document.getElementById('username-display').textContent = data.username;
             document.getElementById('skin-count').textContent = data.skins.length;
             document.getElementById('max-skins').textContent = data.maxSkins;
@@ -121,38 +138,29 @@ function createSkinElement(skin) {
     const skinId = skin.id;
 
     el.dataset.skinId = skinId;
-    el.querySelector('.skin-name').textContent = skin.name;
-
+    const nameEl = el.querySelector('.skin-name');
+    nameEl.textContent = skin.name;
+
+    // Ikon kepala kecil di samping nama (thumbnail head, juga di-cache browser)
+    const head = document.createElement('img');
+    head.className = 'skin-head';
+    head.src = `${API_URL}/skins/${encodeURIComponent(skinId)}/head.png`;
+    head.alt = '';
+    head.loading = 'lazy';
+    head.onerror = () => head.remove();
+    nameEl.prepend(head);
+
+    // Thumbnail 2D dirender server (di-cache browser); 3D hanya dibuat saat preview diklik
     const preview = el.querySelector('.skin-preview');
-    if (window.skinview3d) {
-        try {
-            let skinViewer = new skinview3d.SkinViewer({
-                canvas: document.createElement('canvas'),
-                width: 150,
-                height: 150,
-                skin: {
-                    value: skin.texture,
-                    signature: skin.signature
-                }
-            });
-            preview.innerHTML = '';
-            preview.appendChild(skinViewer.canvas);
-            
-            let control = skinview3d.createOrbitControls(skinViewer);
-            control.enableRotate = true;
-            control.enableZoom = false;
-
-            skinViewer.animation = new skinview3d.WalkingAnimation();
-            skinViewer.animation.speed = 1.5;
-            
-            skinViewerInstances.set(skinId, skinViewer);
-        } catch (e) {
-            console.error("Failed to load 3D skin:", e);
-            preview.textContent = "Preview error";
-        }
-    } else {
-        preview.textContent = '3D Preview disabled';
-    }
+    const thumb = document.createElement('img');
+    thumb.className = 'skin-thumb';
+    thumb.src = `${API_URL}/skins/${encodeURIComponent(skinId)}/thumb.png`;
+    thumb.alt = skin.name;
+    thumb.loading = 'lazy';
+    thumb.onerror = () => { preview.textContent = 'Preview unavailable'; };
+    preview.appendChild(thumb);
+    preview.title = 'Click for 3D preview';
+    preview.addEventListener('click', () => open3dPreview(skin, preview), { once: true });
 
     el.querySelector('.btn-apply').addEventListener('click', () => handleApplySkin(skinId, el));
     el.querySelector('.btn-delete').addEventListener('click', () => handleDeleteSkin(skinId, el));
@@ -160,6 +168,74 @@ function createSkinElement(skin) {
     return el;
 }
 
+// skinview3d v3.4.1 baru dimuat saat 3D preview pertama dibuka: utama dari jsDelivr dengan fallback ke unpkg
+const SKINVIEW3D_SOURCES = [
+    "https://cdn.jsdelivr.net/npm/skinview3d@3.4.1/bundles/skinview3d.min.js",
+    "https://unpkg.com/skinview3d@3.4.1/bundles/skinview3d.min.js"
+];
+let skinview3dLoading = null;
+
+function loadSkinview3d() {
+    if (window.skinview3d) return Promise.resolve(true);
+    if (skinview3dLoading) return skinview3dLoading;
+
+    skinview3dLoading = new Promise(resolve => {
+        function tryLoad(i) {
+            if (i >= SKINVIEW3D_SOURCES.length) {
+                console.warn("skinview3d: semua sumber gagal, 3D preview akan disabled.");
+                resolve(false);
+                return;
+            }
+            const tag = document.createElement("script");
+            tag.src = SKINVIEW3D_SOURCES[i];
+            tag.onload = () => {
+                console.info("skinview3d loaded from:", SKINVIEW3D_SOURCES[i]);
+                resolve(true);
+            };
+            tag.onerror = () => {
+                console.warn("skinview3d failed from:", SKINVIEW3D_SOURCES[i]);
+                tryLoad(i + 1);
+            };
+            document.head.appendChild(tag);
+        }
+        tryLoad(0);
+    });
+    return skinview3dLoading;
+}
+
+async function open3dPreview(skin, preview) {
+    if (!(await loadSkinview3d())) {
+        showMessage('3D preview is not available.', 'error');
+        return;
+    }
+    try {
+        const skinViewer = new skinview3d.SkinViewer({
+            canvas: document.createElement('canvas'),
+            width: 150,
+            height: 150,
+            skin: {
+                value: skin.texture,
+                signature: skin.signature
+            }
+        });
+        preview.innerHTML = '';
+        preview.appendChild(skinViewer.canvas);
+        preview.title = '';
+
+        const control = skinview3d.createOrbitControls(skinViewer);
+        control.enableRotate = true;
+        control.enableZoom = false;
+
+        skinViewer.animation = new skinview3d.WalkingAnimation();
+        skinViewer.animation.speed = 1.5;
+
+        skinViewerInstances.set(skin.id, skinViewer);
+    } catch (e) {
+        console.error("Failed to load 3D skin:", e);
+        preview.textContent = "Preview error";
+    }
+}
+
 async function handleApplySkin(skinId, element) {
     try {
         const response = await fetch(`${API_URL}/dashboard/apply`, {
@@ -238,7 +314,13 @@ async function handleUploadSubmit(event) {
 
         const data = await response.json();
         
-        if (response.ok && data.success) {
+        if (response.ok && data.success && data.jobId) {
+            // Upload masuk antrian MineSkin, tunggu sampai selesai
+            showMessage(data.message || 'Upload queued.', 'success');
+            form.reset();
+            uploadBtn.textContent = 'Processing...';
+            await pollUploadJob(data.jobId);
+        } else if (response.ok && data.success) {
             showMessage(data.message || 'Upload successful!', 'success');
             form.reset();
             await fetchDashboardData();
@@ -255,6 +337,31 @@ async function handleUploadSubmit(event) {
     }
 }
 
+async function pollUploadJob(jobId) {
+    while (true) {
+        await new Promise(resolve => setTimeout(resolve, UPLOAD_POLL_INTERVAL_MS));
+        const response = await fetch(`${API_URL}/dashboard/upload/${encodeURIComponent(jobId)}`);
+        const data = await response.json();
+
+        if (!response.ok) {
+            showMessage(data.message || 'Upload status unavailable.', 'error');
+            return;
+        }
+        if (data.status === 'DONE') {
+            showMessage(data.message || 'Upload successful!', 'success');
+            await fetchDashboardData();
+            return;
+        }
+        if (data.status === 'FAILED') {
+            showMessage(data.message || 'Upload failed.', 'error');
+            return;
+        }
+        if (data.message) {
+            showMessage(data.message, 'success');
+        }
+    }
+}
+
 async function handleLogout() {
     try {
         await fetch(`${API_URL}/logout`, { method: 'POST' });
@@ -0,0 +1,84 @@
+package com.zeroends.skinhub;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+/** Data dan plugin palsu untuk benchmark dan load test; semua acak tapi deterministik dari seed. */
+final class BenchSupport {
+
+    private BenchSupport() {
+    }
+
+    /** Membuat SkinHub tanpa server, dengan folder data sendiri dan config override. */
+    static SkinHub plugin(Path dataFolder, Map<String, Object> overrides) {
+        SkinHub plugin = new SkinHub();
+        plugin.setDataFolder(dataFolder.toFile());
+        overrides.forEach(plugin.getConfig()::set);
+        return plugin;
+    }
+
+    static Path tempDir() {
+        try {
+            return Files.createTempDirectory("skinhub-bench");
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    static void delete(Path dir) {
+        if (dir == null || !Files.exists(dir)) {
+            return;
+        }
+        try (Stream<Path> paths = Files.walk(dir)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    static UUID uuid(SplittableRandom random) {
+        return new UUID(random.nextLong(), random.nextLong());
+    }
+
+    /** Skin dengan ukuran texture/signature seperti hasil MineSkin (JSON base64 + signature 512 byte). */
+    static PlayerData.SkinInfo skin(long id, SplittableRandom random) {
+        String hash = Long.toHexString(random.nextLong()) + Long.toHexString(random.nextLong())
+                + Long.toHexString(random.nextLong()) + Long.toHexString(random.nextLong());
+        String json = "{\"timestamp\":" + id + ",\"profileId\":\"" + Long.toHexString(random.nextLong())
+                + "\",\"profileName\":\"SkinHub\",\"signatureRequired\":true,\"textures\":{\"SKIN\":"
+                + "{\"url\":\"http://textures.minecraft.net/texture/" + hash + "\"}}}";
+        String texture = Base64.getEncoder().encodeToString(json.getBytes(StandardCharsets.UTF_8));
+        byte[] signature = new byte[512];
+        random.nextBytes(signature);
+        return new PlayerData.SkinInfo("skin-" + id, id, texture, Base64.getEncoder().encodeToString(signature));
+    }
+
+    /** PNG 64x64 ARGB dengan piksel acak (tidak terkompresi dengan baik, seperti skin asli). */
+    static byte[] skinPng(SplittableRandom random) {
+        BufferedImage image = new BufferedImage(64, 64, BufferedImage.TYPE_INT_ARGB);
+        for (int y = 0; y < 64; y++) {
+            for (int x = 0; x < 64; x++) {
+                image.setRGB(x, y, random.nextInt());
+            }
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream(16384);
+        try {
+            ImageIO.write(image, "png", out);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+}
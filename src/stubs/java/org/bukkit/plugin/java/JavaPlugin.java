@@ -0,0 +1,92 @@
+package org.bukkit.plugin.java;
+
+import org.bukkit.Server;
+import org.bukkit.command.PluginCommand;
+import org.bukkit.configuration.file.FileConfiguration;
+import org.bukkit.configuration.file.YamlConfiguration;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Pengganti JavaPlugin untuk benchmark dan load test (profile "benchmark" / "loadtest").
+ * JavaPlugin asli hanya bisa dibuat oleh PluginClassLoader server; kelas ini ada lebih dulu di classpath
+ * sehingga SkinHub bisa dibuat tanpa server. Config diisi dari config.yml bawaan plugin.
+ */
+public abstract class JavaPlugin {
+
+    private final Logger logger = Logger.getLogger("SkinHub");
+    private final YamlConfiguration config = new YamlConfiguration();
+    private File dataFolder = new File(System.getProperty("java.io.tmpdir"), "skinhub-bench");
+
+    protected JavaPlugin() {
+        logger.setLevel(Level.WARNING);
+        try (InputStream in = getResource("config.yml")) {
+            if (in != null) {
+                config.load(new InputStreamReader(in, StandardCharsets.UTF_8));
+            }
+        } catch (Exception e) {
+            throw new IllegalStateException("Could not load default config.yml", e);
+        }
+    }
+
+    /** Hanya ada di stub: folder data tempat Storage/PinManager menulis file. */
+    public void setDataFolder(File dataFolder) {
+        if (!dataFolder.isDirectory() && !dataFolder.mkdirs()) {
+            throw new UncheckedIOException(new IOException("Could not create " + dataFolder));
+        }
+        this.dataFolder = dataFolder;
+    }
+
+    public File getDataFolder() {
+        return dataFolder;
+    }
+
+    public FileConfiguration getConfig() {
+        return config;
+    }
+
+    public Logger getLogger() {
+        return logger;
+    }
+
+    public InputStream getResource(String filename) {
+        return getClass().getClassLoader().getResourceAsStream(filename);
+    }
+
+    public void saveDefaultConfig() {
+    }
+
+    public void saveConfig() {
+    }
+
+    public void reloadConfig() {
+    }
+
+    public Server getServer() {
+        throw new UnsupportedOperationException("No server in benchmarks");
+    }
+
+    public PluginCommand getCommand(String name) {
+        return null;
+    }
+
+    public String getName() {
+        return "SkinHub";
+    }
+
+    public void onLoad() {
+    }
+
+    public void onEnable() {
+    }
+
+    public void onDisable() {
+    }
+}